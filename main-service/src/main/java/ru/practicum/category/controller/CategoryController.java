@@ -3,6 +3,7 @@ package ru.practicum.category.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -13,9 +14,12 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.category.dto.CategoryDto;
 import ru.practicum.category.dto.NewCategoryDto;
 import ru.practicum.category.service.CategoryService;
+import ru.practicum.pagination.PageParams;
+import ru.practicum.util.AggregateVersions;
 
 import java.util.List;
 
@@ -25,15 +29,24 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final AggregateVersions aggregateVersions;
 
     @GetMapping("/categories")
-    public List<CategoryDto> getCategories(@RequestParam(defaultValue = "0") int from,
-                                           @RequestParam(defaultValue = "10") int size) {
-        return categoryService.getCategories(from, size);
+    public ResponseEntity<List<CategoryDto>> getCategories(@RequestParam(defaultValue = "0") int from,
+                                                           @RequestParam(defaultValue = "10") int size,
+                                                           @RequestParam(required = false) String cursor,
+                                                           WebRequest webRequest) {
+        if (webRequest.checkNotModified(aggregateVersions.etag(AggregateVersions.Aggregate.CATEGORY))) {
+            return null;
+        }
+        return categoryService.getCategories(PageParams.of(from, size, cursor)).toResponseEntity();
     }
 
     @GetMapping("/categories/{catId}")
-    public CategoryDto getCategoryById(@PathVariable Long catId) {
+    public CategoryDto getCategoryById(@PathVariable Long catId, WebRequest webRequest) {
+        if (webRequest.checkNotModified(aggregateVersions.etag(AggregateVersions.Aggregate.CATEGORY))) {
+            return null;
+        }
         return categoryService.getCategoryById(catId);
     }
 
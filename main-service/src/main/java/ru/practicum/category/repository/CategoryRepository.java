@@ -1,10 +1,14 @@
 package ru.practicum.category.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import ru.practicum.category.model.Category;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     Optional<Category> findByName(String name);
+
+    List<Category> findByIdGreaterThan(Long afterId, Pageable pageable);
 }
\ No newline at end of file
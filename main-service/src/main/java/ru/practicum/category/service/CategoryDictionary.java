@@ -0,0 +1,76 @@
+package ru.practicum.category.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.category.dto.CategoryDto;
+import ru.practicum.category.model.Category;
+import ru.practicum.category.repository.CategoryRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static ru.practicum.category.mapper.CategoryMapper.toCategoryDto;
+import static ru.practicum.util.TransactionCallbacks.afterCommit;
+
+/**
+ * Справочник категорий в памяти. При первом обращении загружается целиком, новые категории дочитываются
+ * по промаху. Изменённые и удалённые категории вычищаются после коммита.
+ */
+@Component
+@RequiredArgsConstructor
+public class CategoryDictionary {
+    private final CategoryRepository categoryRepository;
+
+    private final Map<Long, CategoryDto> categories = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private long version;
+
+    public Map<Long, CategoryDto> getAll(Collection<Long> ids) {
+        if (!loaded) {
+            load(null);
+        }
+        List<Long> missing = ids.stream().filter(id -> !categories.containsKey(id)).distinct().toList();
+        if (!missing.isEmpty()) {
+            load(missing);
+        }
+
+        Map<Long, CategoryDto> result = new HashMap<>();
+        for (Long id : ids) {
+            CategoryDto category = categories.get(id);
+            if (category != null) {
+                result.put(id, category);
+            }
+        }
+        return result;
+    }
+
+    public void evict(Long id) {
+        afterCommit(() -> {
+            synchronized (this) {
+                categories.remove(id);
+                version++;
+            }
+        });
+    }
+
+    private void load(List<Long> ids) {
+        long readVersion;
+        synchronized (this) {
+            readVersion = version;
+        }
+        List<Category> found = ids == null ? categoryRepository.findAll() : categoryRepository.findAllById(ids);
+        synchronized (this) {
+            // Категорию изменили во время чтения: прочитанное могло устареть, дочитаем при следующем обращении
+            if (version != readVersion) {
+                return;
+            }
+            found.forEach(category -> categories.put(category.getId(), toCategoryDto(category)));
+            if (ids == null) {
+                loaded = true;
+            }
+        }
+    }
+}
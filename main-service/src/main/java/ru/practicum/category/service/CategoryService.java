@@ -2,12 +2,12 @@ package ru.practicum.category.service;
 
 import ru.practicum.category.dto.CategoryDto;
 import ru.practicum.category.dto.NewCategoryDto;
-
-import java.util.List;
+import ru.practicum.pagination.CursorPage;
+import ru.practicum.pagination.PageParams;
 
 public interface CategoryService {
 
-    List<CategoryDto> getCategories(int from, int size);
+    CursorPage<CategoryDto> getCategories(PageParams page);
 
     CategoryDto getCategoryById(long catId);
 
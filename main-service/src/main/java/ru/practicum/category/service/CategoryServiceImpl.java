@@ -1,18 +1,24 @@
 package ru.practicum.category.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import ru.practicum.category.dto.CategoryDto;
 import ru.practicum.category.mapper.CategoryMapper;
 import ru.practicum.category.dto.NewCategoryDto;
 import ru.practicum.category.model.Category;
 import ru.practicum.category.repository.CategoryRepository;
+import ru.practicum.compilations.service.PinnedCompilationSnapshot;
 import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.service.PublishedEventCache;
 import ru.practicum.exceptions.CategoryNotFoundException;
 import ru.practicum.exceptions.ConflictException;
 import ru.practicum.exceptions.ForbiddenException;
+import ru.practicum.pagination.CursorPage;
+import ru.practicum.pagination.PageCursor;
+import ru.practicum.pagination.PageParams;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.util.AggregateVersions;
 
 import java.util.List;
 import java.util.Optional;
@@ -26,14 +32,20 @@ import static ru.practicum.category.mapper.CategoryMapper.toCategoryDto;
 public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
     private final EventRepository eventRepository;
+    private final PublishedEventCache publishedEventCache;
+    private final CategoryDictionary categoryDictionary;
+    private final PinnedCompilationSnapshot pinnedCompilationSnapshot;
+    private final AggregateVersions aggregateVersions;
 
     @Override
     @Transactional(readOnly = true)
-    public List<CategoryDto> getCategories(int from, int size) {
-        return categoryRepository.findAll(PageRequest.of(from / size, size))
+    public CursorPage<CategoryDto> getCategories(PageParams page) {
+        List<CategoryDto> categories = categoryRepository.findByIdGreaterThan(page.afterId(),
+                        page.toPageable(Sort.by("id")))
                 .stream()
                 .map(CategoryMapper::toCategoryDto)
                 .collect(Collectors.toList());
+        return page.toPage(categories, category -> PageCursor.afterId(category.getId()));
     }
 
     @Override
@@ -52,6 +64,7 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         Category category = toCategory(newCategoryDto);
+        aggregateVersions.bump(AggregateVersions.Aggregate.CATEGORY);
         return toCategoryDto(categoryRepository.save(category));
     }
 
@@ -63,6 +76,10 @@ public class CategoryServiceImpl implements CategoryService {
                 .orElseThrow(() -> new CategoryNotFoundException(catId));
         Category updatedCategory = toCategory(newCategoryDto);
         updatedCategory.setId(existCategory.getId());
+        categoryDictionary.evict(catId);
+        publishedEventCache.evictAll();
+        pinnedCompilationSnapshot.rebuild();
+        aggregateVersions.bump(AggregateVersions.Aggregate.CATEGORY);
         return toCategoryDto(categoryRepository.save(updatedCategory));
     }
 
@@ -76,5 +93,7 @@ public class CategoryServiceImpl implements CategoryService {
             throw new ForbiddenException("Категория не пустая");
         }
         categoryRepository.deleteById(catId);
+        categoryDictionary.evict(catId);
+        aggregateVersions.bump(AggregateVersions.Aggregate.CATEGORY);
     }
 }
\ No newline at end of file
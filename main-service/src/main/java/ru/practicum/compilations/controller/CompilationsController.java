@@ -4,6 +4,8 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,10 +17,15 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.compilations.dto.CompilationDto;
 import ru.practicum.compilations.dto.NewCompilationDto;
 import ru.practicum.compilations.dto.UpdateCompilationRequestDto;
 import ru.practicum.compilations.service.CompilationService;
+import ru.practicum.compilations.service.PinnedCompilationSnapshot;
+import ru.practicum.pagination.CursorPage;
+import ru.practicum.util.AggregateVersions;
+import ru.practicum.pagination.PageParams;
 
 import java.util.List;
 
@@ -29,16 +36,42 @@ import java.util.List;
 public class CompilationsController {
 
     private final CompilationService compilationService;
+    private final AggregateVersions aggregateVersions;
 
     @GetMapping("/compilations")
-    public List<CompilationDto> getCompilations(@RequestParam(required = false) Boolean pinned,
-                                                @RequestParam(defaultValue = "0") int from,
-                                                @RequestParam(defaultValue = "10") int size) {
-        return compilationService.getCompilations(pinned, from, size);
+    public ResponseEntity<List<CompilationDto>> getCompilations(@RequestParam(required = false) Boolean pinned,
+                                                                @RequestParam(defaultValue = "0") int from,
+                                                                @RequestParam(defaultValue = "10") int size,
+                                                                @RequestParam(required = false) String cursor,
+                                                                WebRequest webRequest) {
+        if (webRequest.checkNotModified(compilationsEtag())) {
+            return null;
+        }
+        return compilationService.getCompilations(pinned, PageParams.of(from, size, cursor)).toResponseEntity();
+    }
+
+    /**
+     * Закреплённые подборки из готового снимка; повторный запрос с If-None-Match получает 304.
+     */
+    @GetMapping(value = "/compilations", params = "pinned=true")
+    public ResponseEntity<byte[]> getPinnedCompilations(@RequestParam(defaultValue = "0") int from,
+                                                        @RequestParam(defaultValue = "10") int size,
+                                                        @RequestParam(required = false) String cursor) {
+        PinnedCompilationSnapshot.Page page = compilationService.getPinnedCompilations(PageParams.of(from, size, cursor));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(page.etag());
+        if (page.nextCursor() != null) {
+            response.header(CursorPage.NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.body());
     }
 
     @GetMapping("/compilations/{compId}")
-    public CompilationDto getCompilationById(@PathVariable @Positive Long compId) {
+    public CompilationDto getCompilationById(@PathVariable @Positive Long compId, WebRequest webRequest) {
+        if (webRequest.checkNotModified(compilationsEtag())) {
+            return null;
+        }
         return compilationService.getCompilationById(compId);
     }
 
@@ -59,4 +92,9 @@ public class CompilationsController {
     public void deleteCompilation(@PathVariable @Positive Long compId) {
         compilationService.deleteCompilation(compId);
     }
-}
\ No newline at end of file
+
+    private String compilationsEtag() {
+        return aggregateVersions.etag(AggregateVersions.Aggregate.COMPILATION, AggregateVersions.Aggregate.EVENT,
+                AggregateVersions.Aggregate.CATEGORY);
+    }
+}
@@ -4,20 +4,21 @@ import lombok.NoArgsConstructor;
 import ru.practicum.compilations.dto.CompilationDto;
 import ru.practicum.compilations.dto.NewCompilationDto;
 import ru.practicum.compilations.model.Compilation;
-import ru.practicum.event.mapper.EventMapper;
+import ru.practicum.event.dto.EventShortDto;
 
 import java.util.Collections;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @NoArgsConstructor
 public class CompilationMapper {
 
-    public static CompilationDto toCompilationDto(Compilation compilation) {
+    public static CompilationDto toCompilationDto(Compilation compilation, Map<Long, EventShortDto> events) {
         return CompilationDto.builder()
                 .id(compilation.getId())
                 .events(compilation.getEvents() != null ?
                         compilation.getEvents().stream()
-                                .map(EventMapper::toEventShortDto)
+                                .map(event -> events.get(event.getId()))
                                 .collect(Collectors.toList()) : Collections.emptyList())
                 .pinned(compilation.isPinned())
                 .title(compilation.getTitle())
@@ -1,12 +1,24 @@
 package ru.practicum.compilations.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.compilations.model.Compilation;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
 
-    List<Compilation> findByPinned(Boolean pinned, Pageable pageable);
+    /**
+     * Id подборок страницы. Подборки с событиями затем читаются {@link #findWithEventsByIdIn}: join fetch коллекции
+     * вместе с limit выполнил бы пагинацию в памяти.
+     */
+    @Query("SELECT c.id FROM Compilation c WHERE (:pinned IS NULL OR c.pinned = :pinned) AND c.id > :afterId")
+    List<Long> findIds(@Param("pinned") Boolean pinned, @Param("afterId") Long afterId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "events")
+    List<Compilation> findWithEventsByIdIn(Collection<Long> ids);
 }
\ No newline at end of file
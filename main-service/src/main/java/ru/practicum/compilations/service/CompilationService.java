@@ -3,12 +3,14 @@ package ru.practicum.compilations.service;
 import ru.practicum.compilations.dto.CompilationDto;
 import ru.practicum.compilations.dto.NewCompilationDto;
 import ru.practicum.compilations.dto.UpdateCompilationRequestDto;
-
-import java.util.List;
+import ru.practicum.pagination.CursorPage;
+import ru.practicum.pagination.PageParams;
 
 public interface CompilationService {
 
-    List<CompilationDto> getCompilations(Boolean pinned, int from, int size);
+    CursorPage<CompilationDto> getCompilations(Boolean pinned, PageParams page);
+
+    PinnedCompilationSnapshot.Page getPinnedCompilations(PageParams page);
 
     CompilationDto getCompilationById(Long compId);
 
@@ -1,21 +1,31 @@
 package ru.practicum.compilations.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.compilations.dto.CompilationDto;
-import ru.practicum.compilations.mapper.CompilationMapper;
 import ru.practicum.compilations.dto.NewCompilationDto;
 import ru.practicum.compilations.dto.UpdateCompilationRequestDto;
 import ru.practicum.compilations.model.Compilation;
 import ru.practicum.compilations.repository.CompilationRepository;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.service.EventDtoAssembler;
 import ru.practicum.exceptions.CompilationNotFoundException;
 import ru.practicum.exceptions.ValidationRequestException;
+import ru.practicum.pagination.CursorPage;
+import ru.practicum.pagination.PageCursor;
+import ru.practicum.pagination.PageParams;
+import ru.practicum.util.AggregateVersions;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static ru.practicum.compilations.mapper.CompilationMapper.toCompilation;
@@ -26,26 +36,37 @@ import static ru.practicum.compilations.mapper.CompilationMapper.toCompilationDt
 public class CompilationServiceImpl implements CompilationService {
     private final CompilationRepository compilationRepository;
     private final EventRepository eventRepository;
+    private final EventDtoAssembler eventDtoAssembler;
+    private final PinnedCompilationSnapshot pinnedCompilationSnapshot;
+    private final AggregateVersions aggregateVersions;
 
     @Override
     @Transactional(readOnly = true)
-    public List<CompilationDto> getCompilations(Boolean pinned, int from, int size) {
-        List<Compilation> compilations;
-        if (pinned != null) {
-            compilations = compilationRepository.findByPinned(pinned, PageRequest.of(from / size, size));
-        } else {
-            compilations = compilationRepository.findAll(PageRequest.of(from / size, size)).getContent();
+    public CursorPage<CompilationDto> getCompilations(Boolean pinned, PageParams page) {
+        List<Long> ids = compilationRepository.findIds(pinned, page.afterId(), page.toPageable(Sort.by("id")));
+        if (ids.isEmpty()) {
+            return CursorPage.of(Collections.emptyList());
         }
-        return !compilations.isEmpty() ? compilations.stream()
-                .map(CompilationMapper::toCompilationDto)
-                .collect(Collectors.toList()) : Collections.emptyList();
+        List<Compilation> compilations = compilationRepository.findWithEventsByIdIn(ids).stream()
+                .sorted(Comparator.comparing(Compilation::getId))
+                .toList();
+        Map<Long, EventShortDto> events = toEventShortDtos(compilations);
+        return page.toPage(compilations.stream()
+                .map(compilation -> toCompilationDto(compilation, events))
+                .collect(Collectors.toList()), compilation -> PageCursor.afterId(compilation.getId()));
+    }
+
+    @Override
+    public PinnedCompilationSnapshot.Page getPinnedCompilations(PageParams page) {
+        return pinnedCompilationSnapshot.getPage(page);
     }
 
     @Override
     @Transactional(readOnly = true)
     public CompilationDto getCompilationById(Long compId) {
-        return toCompilationDto(compilationRepository.findById(compId)
-                .orElseThrow(() -> new CompilationNotFoundException(compId)));
+        Compilation compilation = compilationRepository.findById(compId)
+                .orElseThrow(() -> new CompilationNotFoundException(compId));
+        return toCompilationDto(compilation, toEventShortDtos(List.of(compilation)));
     }
 
     @Override
@@ -55,7 +76,12 @@ public class CompilationServiceImpl implements CompilationService {
         if (newCompilationDto.getEvents() != null) {
             compilation.setEvents(eventRepository.findByIdIn(newCompilationDto.getEvents()));
         }
-        return toCompilationDto(compilationRepository.save(compilation));
+        compilation = compilationRepository.save(compilation);
+        if (compilation.isPinned()) {
+            pinnedCompilationSnapshot.rebuild();
+        }
+        aggregateVersions.bump(AggregateVersions.Aggregate.COMPILATION);
+        return toCompilationDto(compilation, toEventShortDtos(List.of(compilation)));
     }
 
     @Override
@@ -63,6 +89,7 @@ public class CompilationServiceImpl implements CompilationService {
     public CompilationDto updateCompilation(Long compId, UpdateCompilationRequestDto updateCompilationRequestDto) {
         Compilation compilation = compilationRepository.findById(compId)
                 .orElseThrow(() -> new CompilationNotFoundException(compId));
+        boolean wasPinned = compilation.isPinned();
         if (updateCompilationRequestDto.getTitle() != null) {
             String title = updateCompilationRequestDto.getTitle();
             if (title.isEmpty() || title.length() > 50) {
@@ -76,13 +103,33 @@ public class CompilationServiceImpl implements CompilationService {
         if (updateCompilationRequestDto.getEvents() != null) {
             compilation.setEvents(eventRepository.findByIdIn(updateCompilationRequestDto.getEvents()));
         }
-        return toCompilationDto(compilationRepository.save(compilation));
+        compilation = compilationRepository.save(compilation);
+        if (wasPinned || compilation.isPinned()) {
+            pinnedCompilationSnapshot.rebuild();
+        }
+        aggregateVersions.bump(AggregateVersions.Aggregate.COMPILATION);
+        return toCompilationDto(compilation, toEventShortDtos(List.of(compilation)));
     }
 
     @Override
     @Transactional
     public void deleteCompilation(Long compId) {
-        compilationRepository.findById(compId).orElseThrow(() -> new CompilationNotFoundException(compId));
+        Compilation compilation = compilationRepository.findById(compId)
+                .orElseThrow(() -> new CompilationNotFoundException(compId));
         compilationRepository.deleteById(compId);
+        if (compilation.isPinned()) {
+            pinnedCompilationSnapshot.rebuild();
+        }
+        aggregateVersions.bump(AggregateVersions.Aggregate.COMPILATION);
+    }
+
+    private Map<Long, EventShortDto> toEventShortDtos(Collection<Compilation> compilations) {
+        List<Event> events = compilations.stream()
+                .filter(compilation -> compilation.getEvents() != null)
+                .flatMap(compilation -> compilation.getEvents().stream())
+                .distinct()
+                .toList();
+        return eventDtoAssembler.toShortDtos(events).stream()
+                .collect(Collectors.toMap(EventShortDto::getId, Function.identity()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,204 @@
+package ru.practicum.compilations.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import ru.practicum.compilations.dto.CompilationDto;
+import ru.practicum.compilations.model.Compilation;
+import ru.practicum.compilations.repository.CompilationRepository;
+import ru.practicum.event.dto.EventShortDto;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.service.EventDtoAssembler;
+import ru.practicum.pagination.PageCursor;
+import ru.practicum.pagination.PageParams;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static ru.practicum.compilations.mapper.CompilationMapper.toCompilationDto;
+import static ru.practicum.util.TransactionCallbacks.afterCommit;
+
+/**
+ * Готовый JSON закреплённых подборок для главной страницы. Каждая подборка сериализуется при пересборке,
+ * запрос лишь склеивает байты нужной страницы, без обращения к базе и Jackson.
+ *
+ * <p>Снимок пересобирается в фоне после коммита изменений подборок, категорий и входящих в подборки событий,
+ * а также периодически, чтобы обновить подтверждённые заявки и просмотры. Пока идёт пересборка,
+ * отдаётся предыдущий снимок.
+ */
+@Slf4j
+@Component
+public class PinnedCompilationSnapshot {
+    private final CompilationRepository compilationRepository;
+    private final EventDtoAssembler eventDtoAssembler;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("pinned-compilations-rebuild").daemon().factory());
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+
+    public PinnedCompilationSnapshot(CompilationRepository compilationRepository,
+                                     EventDtoAssembler eventDtoAssembler,
+                                     ObjectMapper objectMapper,
+                                     PlatformTransactionManager transactionManager) {
+        this.compilationRepository = compilationRepository;
+        this.eventDtoAssembler = eventDtoAssembler;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public Page getPage(PageParams page) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            current = rebuildNow();
+        }
+        return current.page(page);
+    }
+
+    /**
+     * Пересобирает снимок после коммита текущей транзакции, если событие входит в закреплённую подборку.
+     */
+    public void onEventChanged(Long eventId) {
+        Snapshot current = snapshot;
+        if (current != null && current.eventIds().contains(eventId)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Ставит пересборку в очередь после коммита текущей транзакции. Запросы, пришедшие до начала
+     * пересборки, объединяются в одну.
+     */
+    public void rebuild() {
+        afterCommit(() -> {
+            if (rebuildQueued.compareAndSet(false, true)) {
+                rebuildExecutor.execute(this::rebuildQueued);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${compilation-snapshot.refresh-interval-ms:30000}")
+    public void refresh() {
+        if (snapshot != null) {
+            rebuild();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private void rebuildQueued() {
+        rebuildQueued.set(false);
+        try {
+            rebuildNow();
+        } catch (Exception e) {
+            log.error("Не удалось пересобрать снимок закреплённых подборок", e);
+        }
+    }
+
+    private synchronized Snapshot rebuildNow() {
+        Snapshot built = transactionTemplate.execute(status -> build());
+        snapshot = built;
+        log.debug("Снимок закреплённых подборок пересобран: {} подборок", built.ids().length);
+        return built;
+    }
+
+    private Snapshot build() {
+        List<Long> ids = compilationRepository.findIds(true, 0L, Pageable.unpaged(Sort.by("id")));
+        List<Compilation> compilations = ids.isEmpty() ? List.of() : compilationRepository.findWithEventsByIdIn(ids)
+                .stream()
+                .sorted(Comparator.comparing(Compilation::getId))
+                .toList();
+        List<Event> events = compilations.stream()
+                .filter(compilation -> compilation.getEvents() != null)
+                .flatMap(compilation -> compilation.getEvents().stream())
+                .distinct()
+                .toList();
+        Map<Long, EventShortDto> eventDtos = eventDtoAssembler.toShortDtos(events).stream()
+                .collect(Collectors.toMap(EventShortDto::getId, Function.identity()));
+
+        long[] compilationIds = new long[compilations.size()];
+        List<byte[]> items = new ArrayList<>(compilations.size());
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (int i = 0; i < compilations.size(); i++) {
+            CompilationDto dto = toCompilationDto(compilations.get(i), eventDtos);
+            byte[] json = serialize(dto);
+            compilationIds[i] = dto.getId();
+            items.add(json);
+            content.writeBytes(json);
+        }
+        String etag = "\"" + DigestUtils.md5DigestAsHex(content.toByteArray()) + "\"";
+        return new Snapshot(compilationIds, items, Set.copyOf(eventDtos.keySet()), etag);
+    }
+
+    private byte[] serialize(CompilationDto dto) {
+        try {
+            return objectMapper.writeValueAsBytes(dto);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать подборку " + dto.getId(), e);
+        }
+    }
+
+    /**
+     * Страница снимка: готовое тело ответа, ETag снимка и курсор следующей страницы в keyset-режиме.
+     */
+    public record Page(byte[] body, String etag, String nextCursor) {
+    }
+
+    private record Snapshot(long[] ids, List<byte[]> items, Set<Long> eventIds, String etag) {
+        Page page(PageParams page) {
+            int start;
+            if (page.isKeyset()) {
+                int position = Arrays.binarySearch(ids, page.afterId());
+                start = position >= 0 ? position + 1 : -position - 1;
+            } else {
+                start = (int) Math.min(page.getFrom(), ids.length);
+            }
+            int end = (int) Math.min((long) start + page.getSize(), ids.length);
+
+            int length = 2 + Math.max(end - start - 1, 0);
+            for (int i = start; i < end; i++) {
+                length += items.get(i).length;
+            }
+            byte[] body = new byte[length];
+            int offset = 0;
+            body[offset++] = '[';
+            for (int i = start; i < end; i++) {
+                if (i > start) {
+                    body[offset++] = ',';
+                }
+                byte[] item = items.get(i);
+                System.arraycopy(item, 0, body, offset, item.length);
+                offset += item.length;
+            }
+            body[offset] = ']';
+
+            String nextCursor = page.isKeyset() && page.getSize() > 0 && end - start == page.getSize()
+                    ? PageCursor.afterId(ids[end - 1]).encode() : null;
+            return new Page(body, etag, nextCursor);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -16,12 +17,16 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.dto.NewEventDto;
 import ru.practicum.event.dto.UpdateEventAdminRequestDto;
 import ru.practicum.event.dto.UpdateEventUserRequestDto;
 import ru.practicum.event.service.EventService;
+import ru.practicum.event.service.PublishedEventCache.ListingKey;
+import ru.practicum.pagination.PageParams;
+import ru.practicum.util.AggregateVersions;
 
 import java.util.List;
 
@@ -32,6 +37,7 @@ import java.util.List;
 public class EventController {
 
     private final EventService eventService;
+    private final AggregateVersions aggregateVersions;
 
     @PostMapping("/users/{userId}/events")
     @ResponseStatus(HttpStatus.CREATED)
@@ -41,10 +47,11 @@ public class EventController {
     }
 
     @GetMapping("/users/{userId}/events")
-    public List<EventShortDto> getUserEvents(@PathVariable @Positive Long userId,
-                                             @RequestParam(defaultValue = "0") @PositiveOrZero int from,
-                                             @RequestParam(defaultValue = "10") @Positive int size) {
-        return eventService.getEvents(userId, from, size);
+    public ResponseEntity<List<EventShortDto>> getUserEvents(@PathVariable @Positive Long userId,
+                                                             @RequestParam(defaultValue = "0") @PositiveOrZero int from,
+                                                             @RequestParam(defaultValue = "10") @Positive int size,
+                                                             @RequestParam(required = false) String cursor) {
+        return eventService.getEvents(userId, PageParams.of(from, size, cursor)).toResponseEntity();
     }
 
     @GetMapping("/users/{userId}/events/{eventId}")
@@ -61,14 +68,16 @@ public class EventController {
     }
 
     @GetMapping("/admin/events")
-    public List<EventFullDto> getAdminEvents(@RequestParam(required = false) List<Long> users,
-                                             @RequestParam(required = false) List<String> states,
-                                             @RequestParam(required = false) List<Long> categories,
-                                             @RequestParam(required = false) String rangeStart,
-                                             @RequestParam(required = false) String rangeEnd,
-                                             @RequestParam(defaultValue = "0") @PositiveOrZero int from,
-                                             @RequestParam(defaultValue = "10") @Positive int size) {
-        return eventService.getEventsByAdmin(users, states, categories, rangeStart, rangeEnd, from, size);
+    public ResponseEntity<List<EventFullDto>> getAdminEvents(@RequestParam(required = false) List<Long> users,
+                                                             @RequestParam(required = false) List<String> states,
+                                                             @RequestParam(required = false) List<Long> categories,
+                                                             @RequestParam(required = false) String rangeStart,
+                                                             @RequestParam(required = false) String rangeEnd,
+                                                             @RequestParam(defaultValue = "0") @PositiveOrZero int from,
+                                                             @RequestParam(defaultValue = "10") @Positive int size,
+                                                             @RequestParam(required = false) String cursor) {
+        return eventService.getEventsByAdmin(users, states, categories, rangeStart, rangeEnd,
+                PageParams.of(from, size, cursor)).toResponseEntity();
     }
 
     @PatchMapping("/admin/events/{eventId}")
@@ -78,23 +87,43 @@ public class EventController {
     }
 
     @GetMapping("/events")
-    public List<EventShortDto> getPublishedEvents(@RequestParam(required = false) String text,
-                                                  @RequestParam(required = false) List<Long> categories,
-                                                  @RequestParam(required = false) Boolean paid,
-                                                  @RequestParam(required = false) String rangeStart,
-                                                  @RequestParam(required = false) String rangeEnd,
-                                                  @RequestParam(defaultValue = "false") boolean onlyAvailable,
-                                                  @RequestParam(required = false) String sort,
-                                                  @RequestParam(defaultValue = "0") @PositiveOrZero int from,
-                                                  @RequestParam(defaultValue = "10") @Positive int size,
-                                                  HttpServletRequest request) {
+    public ResponseEntity<List<EventShortDto>> getPublishedEvents(
+            @RequestParam(required = false) String text,
+            @RequestParam(required = false) List<Long> categories,
+            @RequestParam(required = false) Boolean paid,
+            @RequestParam(required = false) String rangeStart,
+            @RequestParam(required = false) String rangeEnd,
+            @RequestParam(defaultValue = "false") boolean onlyAvailable,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "0") @PositiveOrZero int from,
+            @RequestParam(defaultValue = "10") @Positive int size,
+            @RequestParam(required = false) String cursor,
+            HttpServletRequest request,
+            WebRequest webRequest) {
+        String etag = rangeStart != null ? publishedEventsEtag()
+                : aggregateVersions.etag(ListingKey.defaultRangeStart(), AggregateVersions.Aggregate.EVENT,
+                AggregateVersions.Aggregate.CATEGORY);
+        if (webRequest.checkNotModified(etag)) {
+            eventService.recordHit(request);
+            return null;
+        }
         return eventService.getPublishedEvents(text, categories, paid, rangeStart, rangeEnd, onlyAvailable,
-                sort, from, size, request);
+                sort, PageParams.of(from, size, cursor), request).toResponseEntity();
     }
 
     @GetMapping("/events/{id}")
     public EventFullDto getPublishedEventById(@PathVariable @Positive Long id,
-                                              HttpServletRequest request) {
+                                              HttpServletRequest request,
+                                              WebRequest webRequest) {
+        eventService.requirePublished(id);
+        if (webRequest.checkNotModified(publishedEventsEtag())) {
+            eventService.recordView(id, request);
+            return null;
+        }
         return eventService.getPublishedEventById(id, request);
     }
+
+    private String publishedEventsEtag() {
+        return aggregateVersions.etag(AggregateVersions.Aggregate.EVENT, AggregateVersions.Aggregate.CATEGORY);
+    }
 }
\ No newline at end of file
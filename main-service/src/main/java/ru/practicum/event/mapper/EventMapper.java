@@ -1,21 +1,18 @@
 package ru.practicum.event.mapper;
 
 import lombok.NoArgsConstructor;
+import ru.practicum.category.dto.CategoryDto;
 import ru.practicum.event.model.Event;
 import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.dto.NewEventDto;
-import ru.practicum.request.model.Request;
-import ru.practicum.request.model.RequestStatus;
+import ru.practicum.user.dto.UserShortDto;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 
-import static ru.practicum.category.mapper.CategoryMapper.toCategoryDto;
 import static ru.practicum.location.mapper.LocationMapper.toLocation;
 import static ru.practicum.location.mapper.LocationMapper.toLocationDto;
-import static ru.practicum.user.mapper.UserMapper.toUserShortDto;
 
 @NoArgsConstructor
 public class EventMapper {
@@ -34,44 +31,40 @@ public class EventMapper {
                 .build();
     }
 
-    public static EventFullDto toEventFullDto(Event event) {
+    public static EventFullDto toEventFullDto(Event event, CategoryDto category, UserShortDto initiator,
+                                              long confirmedRequests) {
         return EventFullDto.builder()
                 .id(event.getId())
                 .title(event.getTitle())
                 .annotation(event.getAnnotation())
-                .category(toCategoryDto(event.getCategory()))
+                .category(category)
                 .description(event.getDescription())
                 .eventDate(event.getEventDate().format(formatter))
                 .location(toLocationDto(event.getLocation()))
                 .paid(event.isPaid())
                 .participantLimit(event.getParticipantLimit())
                 .requestModeration(event.isRequestModeration())
-                .confirmedRequests(countConfirmedRequests(event.getRequests()))
+                .confirmedRequests(confirmedRequests)
                 .createdOn(event.getCreatedOn().format(formatter))
                 .publishedOn(event.getPublishedOn() != null ? event.getPublishedOn().format(formatter) : null)
-                .initiator(toUserShortDto(event.getInitiator()))
+                .initiator(initiator)
                 .state(event.getState().toString())
                 .views(event.getViews())
                 .build();
     }
 
-    public static EventShortDto toEventShortDto(Event event) {
+    public static EventShortDto toEventShortDto(Event event, CategoryDto category, UserShortDto initiator,
+                                                long confirmedRequests) {
         return EventShortDto.builder()
                 .id(event.getId())
                 .title(event.getTitle())
                 .annotation(event.getAnnotation())
-                .category(toCategoryDto(event.getCategory()))
+                .category(category)
                 .eventDate(event.getEventDate().format(formatter))
-                .confirmedRequests(countConfirmedRequests(event.getRequests()))
-                .initiator(toUserShortDto(event.getInitiator()))
+                .confirmedRequests(confirmedRequests)
+                .initiator(initiator)
                 .paid(event.isPaid())
                 .views(event.getViews())
                 .build();
     }
-
-    public static long countConfirmedRequests(List<Request> requests) {
-        return requests != null
-                ? requests.stream().filter(r -> r.getStatus() == RequestStatus.CONFIRMED).count()
-                : 0;
-    }
 }
\ No newline at end of file
@@ -1,9 +1,14 @@
 package ru.practicum.event.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.event.model.Event;
 import ru.practicum.event.model.EventState;
 
@@ -13,14 +18,23 @@ import java.util.Optional;
 
 public interface EventRepository extends JpaRepository<Event, Long> {
 
-    List<Event> findByInitiatorId(Long userId, Pageable pageable);
+    @EntityGraph(attributePaths = "location")
+    List<Event> findByInitiatorIdAndIdGreaterThan(Long userId, Long afterId, Pageable pageable);
 
     List<Event> findByIdAndInitiatorId(Long eventId, Long userId);
 
+    @EntityGraph(attributePaths = "location")
     List<Event> findByIdIn(List<Long> eventIds);
 
     long countByCategoryId(Long catId);
 
+    /**
+     * Читает событие с блокировкой строки до конца транзакции; под ней проверяется и занимается лимит участников.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Event e WHERE e.id = :eventId")
+    Optional<Event> findByIdForUpdate(@Param("eventId") Long eventId);
+
     @Query(value = """
             SELECT * FROM events e
             WHERE (CAST(:users AS TEXT) IS NULL OR e.initiator_id IN (:users))
@@ -28,6 +42,7 @@ public interface EventRepository extends JpaRepository<Event, Long> {
             AND (CAST(:categories AS TEXT) IS NULL OR e.category_id IN (:categories))
             AND (CAST(:rangeStart AS TEXT) IS NULL OR e.event_date >= :rangeStart)
             AND (CAST(:rangeEnd AS TEXT) IS NULL OR e.event_date <= :rangeEnd)
+            AND e.id > :afterId
             """, nativeQuery = true)
     List<Event> findEvents(
             @Param("users") List<Long> users,
@@ -35,27 +50,101 @@ public interface EventRepository extends JpaRepository<Event, Long> {
             @Param("categories") List<Long> categories,
             @Param("rangeStart") LocalDateTime rangeStart,
             @Param("rangeEnd") LocalDateTime rangeEnd,
+            @Param("afterId") long afterId,
             Pageable pageable);
 
-    @Query(value = """
+    String PUBLISHED_EVENTS_FILTER = """
             SELECT * FROM events e
             WHERE e.state = 'PUBLISHED'
-              AND (:text IS NULL OR LOWER(e.annotation) LIKE LOWER(CONCAT('%', CAST(:text AS TEXT), '%'))
-                                  OR LOWER(e.description) LIKE LOWER(CONCAT('%', CAST(:text AS TEXT), '%')) )
-              AND (:categories IS NULL OR e.category_id IN (CAST(CAST(:categories AS TEXT) AS BIGINT)))
-              AND (:paid IS NULL OR e.paid = CAST(CAST(:paid AS TEXT) AS BOOLEAN))
-              AND (e.event_date >= :rangeStart)
-              AND (CAST(:rangeEnd AS timestamp) IS NULL OR e.event_date < CAST(:rangeEnd AS timestamp))
-            """,
-            nativeQuery = true)
+              AND (CAST(:text AS TEXT) IS NULL
+                   OR LOWER(e.annotation) LIKE LOWER(CONCAT('%', CAST(:text AS TEXT), '%'))
+                   OR LOWER(e.description) LIKE LOWER(CONCAT('%', CAST(:text AS TEXT), '%')))
+              AND (CAST(:categories AS TEXT) IS NULL OR e.category_id IN (:categories))
+              AND (CAST(:paid AS BOOLEAN) IS NULL OR e.paid = CAST(:paid AS BOOLEAN))
+              AND e.event_date >= :rangeStart
+              AND (CAST(:rangeEnd AS TIMESTAMP) IS NULL OR e.event_date < CAST(:rangeEnd AS TIMESTAMP))
+              AND (:onlyAvailable = FALSE
+                   OR e.participant_limit = 0
+                   OR e.participant_limit > (SELECT COUNT(*) FROM requests r
+                                             WHERE r.event_id = e.id AND r.status = 'CONFIRMED'))
+            """;
+
+    /**
+     * Страница опубликованных событий; порядок задаётся сортировкой pageable по колонкам event_date или views.
+     * При onlyAvailable остаются события без лимита участников или с неисчерпанным лимитом.
+     * afterId отсекает события до курсора при keyset-пагинации по id, для первой страницы передаётся 0.
+     */
+    @Query(value = PUBLISHED_EVENTS_FILTER + "AND e.id > :afterId", nativeQuery = true)
     List<Event> findPublishedEvents(@Param("text") String text,
                                     @Param("categories") List<Long> categories,
                                     @Param("paid") Boolean paid,
                                     @Param("rangeStart") LocalDateTime rangeStart,
                                     @Param("rangeEnd") LocalDateTime rangeEnd,
+                                    @Param("onlyAvailable") boolean onlyAvailable,
+                                    @Param("afterId") long afterId,
                                     Pageable pageable);
 
+    /**
+     * Следующая страница при сортировке по дате: сравнение пар (event_date, id) читает индекс
+     * idx_events_state_event_date сразу с позиции курсора. Pageable должен сортировать по event_date, id.
+     */
+    @Query(value = PUBLISHED_EVENTS_FILTER + "AND (e.event_date, e.id) > (:afterDate, :afterId)", nativeQuery = true)
+    List<Event> findPublishedEventsAfterDate(@Param("text") String text,
+                                             @Param("categories") List<Long> categories,
+                                             @Param("paid") Boolean paid,
+                                             @Param("rangeStart") LocalDateTime rangeStart,
+                                             @Param("rangeEnd") LocalDateTime rangeEnd,
+                                             @Param("onlyAvailable") boolean onlyAvailable,
+                                             @Param("afterDate") LocalDateTime afterDate,
+                                             @Param("afterId") long afterId,
+                                             Pageable pageable);
+
+    /**
+     * Следующая страница при сортировке по просмотрам, по индексу idx_events_state_views.
+     * Pageable должен сортировать по views, id.
+     *
+     * <p>Снимка между страницами нет, а views растут при каждом сбросе счётчика просмотров. Событие, уже
+     * показанное до курсора, может набрать просмотры, оказаться после него и повториться на следующей странице.
+     * Пропусков нет, пока afterViews не больше сохранённых просмотров последнего события страницы на момент её
+     * чтения: просмотры не убывают, поэтому событие после курсора там и остаётся. Сервис строит курсор при
+     * загрузке страницы, а закэшированные страницы не правит, а удаляет при сбросе просмотров.
+     */
+    @Query(value = PUBLISHED_EVENTS_FILTER + "AND (e.views, e.id) > (:afterViews, :afterId)", nativeQuery = true)
+    List<Event> findPublishedEventsAfterViews(@Param("text") String text,
+                                              @Param("categories") List<Long> categories,
+                                              @Param("paid") Boolean paid,
+                                              @Param("rangeStart") LocalDateTime rangeStart,
+                                              @Param("rangeEnd") LocalDateTime rangeEnd,
+                                              @Param("onlyAvailable") boolean onlyAvailable,
+                                              @Param("afterViews") long afterViews,
+                                              @Param("afterId") long afterId,
+                                              Pageable pageable);
+
+    /**
+     * Те же фильтры, что и в {@link #findPublishedEvents}, но события упорядочены по близости text
+     * к аннотации или описанию. Подстроки ищутся по триграммным GIN-индексам.
+     */
+    @Query(value = PUBLISHED_EVENTS_FILTER + """
+            ORDER BY GREATEST(word_similarity(LOWER(CAST(:text AS TEXT)), LOWER(e.annotation)),
+                              word_similarity(LOWER(CAST(:text AS TEXT)), LOWER(e.description))) DESC, e.id
+            """, nativeQuery = true)
+    List<Event> searchPublishedEvents(@Param("text") String text,
+                                      @Param("categories") List<Long> categories,
+                                      @Param("paid") Boolean paid,
+                                      @Param("rangeStart") LocalDateTime rangeStart,
+                                      @Param("rangeEnd") LocalDateTime rangeEnd,
+                                      @Param("onlyAvailable") boolean onlyAvailable,
+                                      Pageable pageable);
+
     boolean existsByCategoryId(Long categoryId);
 
+    boolean existsByIdAndState(Long eventId, EventState state);
+
+    @EntityGraph(attributePaths = "location")
     Optional<Event> findByIdAndState(Long eventId, EventState state);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Event e SET e.views = e.views + :delta WHERE e.id = :eventId")
+    void incrementViews(@Param("eventId") Long eventId, @Param("delta") long delta);
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package ru.practicum.event.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.category.dto.CategoryDto;
+import ru.practicum.category.service.CategoryDictionary;
+import ru.practicum.event.dto.EventFullDto;
+import ru.practicum.event.dto.EventShortDto;
+import ru.practicum.event.model.Event;
+import ru.practicum.request.repository.RequestRepository;
+import ru.practicum.user.dto.UserShortDto;
+import ru.practicum.user.service.UserShortDtoCache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static ru.practicum.event.mapper.EventMapper.toEventFullDto;
+import static ru.practicum.event.mapper.EventMapper.toEventShortDto;
+
+/**
+ * Собирает DTO для страницы событий: категории и инициаторы берутся из справочников в памяти,
+ * подтверждённые заявки считаются одним запросом на всю страницу. Из сущностей читаются только id связей,
+ * поэтому ленивые category и initiator не инициализируются.
+ */
+@Component
+@RequiredArgsConstructor
+public class EventDtoAssembler {
+    private final RequestRepository requestRepository;
+    private final CategoryDictionary categoryDictionary;
+    private final UserShortDtoCache userShortDtoCache;
+
+    public EventFullDto toFullDto(Event event) {
+        return toFullDtos(List.of(event)).get(0);
+    }
+
+    public List<EventFullDto> toFullDtos(Collection<Event> events) {
+        PageData data = load(events);
+        return events.stream()
+                .map(event -> toEventFullDto(event, data.category(event), data.initiator(event),
+                        data.confirmedRequests(event)))
+                .toList();
+    }
+
+    public List<EventShortDto> toShortDtos(Collection<Event> events) {
+        PageData data = load(events);
+        return events.stream()
+                .map(event -> toEventShortDto(event, data.category(event), data.initiator(event),
+                        data.confirmedRequests(event)))
+                .toList();
+    }
+
+    private PageData load(Collection<Event> events) {
+        return new PageData(
+                categoryDictionary.getAll(events.stream().map(event -> event.getCategory().getId()).toList()),
+                userShortDtoCache.getAll(events.stream().map(event -> event.getInitiator().getId()).toList()),
+                requestRepository.countConfirmedByEventIds(events.stream().map(Event::getId).toList()));
+    }
+
+    private record PageData(Map<Long, CategoryDto> categories, Map<Long, UserShortDto> initiators,
+                            Map<Long, Long> confirmed) {
+        CategoryDto category(Event event) {
+            return categories.get(event.getCategory().getId());
+        }
+
+        UserShortDto initiator(Event event) {
+            return initiators.get(event.getInitiator().getId());
+        }
+
+        long confirmedRequests(Event event) {
+            return confirmed.getOrDefault(event.getId(), 0L);
+        }
+    }
+}
@@ -6,6 +6,8 @@ import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.dto.NewEventDto;
 import ru.practicum.event.dto.UpdateEventAdminRequestDto;
 import ru.practicum.event.dto.UpdateEventUserRequestDto;
+import ru.practicum.pagination.CursorPage;
+import ru.practicum.pagination.PageParams;
 
 import java.util.List;
 
@@ -13,7 +15,7 @@ public interface EventService {
 
     EventFullDto createEvent(Long userId, NewEventDto newEventDto);
 
-    List<EventShortDto> getEvents(Long userId, int from, int size);
+    CursorPage<EventShortDto> getEvents(Long userId, PageParams page);
 
     EventFullDto getEventById(Long userId, Long eventId);
 
@@ -21,12 +23,29 @@ public interface EventService {
 
     EventFullDto updateEventByAdmin(Long eventId, UpdateEventAdminRequestDto updateEventAdminRequestDto);
 
-    List<EventFullDto> getEventsByAdmin(List<Long> users, List<String> states, List<Long> categories,
-                                        String rangeStart, String rangeEnd, int from, int size);
+    CursorPage<EventFullDto> getEventsByAdmin(List<Long> users, List<String> states, List<Long> categories,
+                                              String rangeStart, String rangeEnd, PageParams page);
 
-    List<EventShortDto> getPublishedEvents(String text, List<Long> categories, Boolean paid,
-                                           String rangeStart, String rangeEnd, boolean onlyAvailable,
-                                           String sort, int from, int size, HttpServletRequest request);
+    CursorPage<EventShortDto> getPublishedEvents(String text, List<Long> categories, Boolean paid,
+                                                 String rangeStart, String rangeEnd, boolean onlyAvailable,
+                                                 String sort, PageParams page, HttpServletRequest request);
 
     EventFullDto getPublishedEventById(Long eventId, HttpServletRequest request);
+
+    /**
+     * Бросает EventNotFoundException, если событие не существует или не опубликовано. Вызывается до проверки
+     * ETag, чтобы снятое с публикации событие не получило 304. Карточка при этом не собирается: проверка
+     * читает только кэш карточек или делает запрос на существование.
+     */
+    void requirePublished(Long eventId);
+
+    /**
+     * Отправляет hit в сервис статистики, когда список событий не запрашивается из-за ответа 304.
+     */
+    void recordHit(HttpServletRequest request);
+
+    /**
+     * Учитывает просмотр события, когда карточка не запрашивается из-за ответа 304.
+     */
+    void recordView(Long eventId, HttpServletRequest request);
 }
\ No newline at end of file
@@ -3,23 +3,23 @@ package ru.practicum.event.service;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.http.ResponseEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.HitDto;
 import ru.practicum.StatClient;
-import ru.practicum.StatDto;
 import ru.practicum.category.model.Category;
 import ru.practicum.category.repository.CategoryRepository;
+import ru.practicum.compilations.service.PinnedCompilationSnapshot;
 
 import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.dto.NewEventDto;
 import ru.practicum.event.dto.UpdateEventAdminRequestDto;
 import ru.practicum.event.dto.UpdateEventUserRequestDto;
-import ru.practicum.event.mapper.EventMapper;
 import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventSort;
 import ru.practicum.event.model.EventState;
 import ru.practicum.event.model.StateAdminAction;
 import ru.practicum.event.model.StateUserAction;
@@ -31,19 +31,23 @@ import ru.practicum.exceptions.UserNotFoundException;
 import ru.practicum.exceptions.ValidationRequestException;
 import ru.practicum.location.model.Location;
 import ru.practicum.location.repository.LocationRepository;
+import ru.practicum.pagination.CursorPage;
+import ru.practicum.pagination.PageCursor;
+import ru.practicum.pagination.PageParams;
 import ru.practicum.user.model.User;
 import ru.practicum.user.repository.UserRepository;
+import ru.practicum.util.AggregateVersions;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static ru.practicum.event.mapper.EventMapper.toEvent;
-import static ru.practicum.event.mapper.EventMapper.toEventFullDto;
 import static ru.practicum.location.mapper.LocationMapper.toLocation;
 
 @Service
@@ -57,6 +61,11 @@ public class EventServiceImpl implements EventService {
     private final CategoryRepository categoryRepository;
     private final LocationRepository locationRepository;
     private final StatClient statClient;
+    private final EventViewCounter eventViewCounter;
+    private final PublishedEventCache publishedEventCache;
+    private final EventDtoAssembler eventDtoAssembler;
+    private final PinnedCompilationSnapshot pinnedCompilationSnapshot;
+    private final AggregateVersions aggregateVersions;
 
     @Override
     @Transactional
@@ -80,16 +89,20 @@ public class EventServiceImpl implements EventService {
         event.setLocation(locationRepository.save(toLocation(newEventDto.getLocation())));
         event.setViews(0L);
 
-        return toEventFullDto(eventRepository.save(event));
+        event = eventRepository.save(event);
+        aggregateVersions.bump(AggregateVersions.Aggregate.EVENT);
+        return eventDtoAssembler.toFullDto(event);
     }
 
     @Override
-    public List<EventShortDto> getEvents(Long userId, int from, int size) {
+    public CursorPage<EventShortDto> getEvents(Long userId, PageParams page) {
         if (!userRepository.existsById(userId)) {
             throw new UserNotFoundException(userId);
         }
-        List<Event> events = eventRepository.findByInitiatorId(userId, PageRequest.of(from / size, size));
-        return events.stream().map(EventMapper::toEventShortDto).collect(Collectors.toList());
+        List<Event> events = eventRepository.findByInitiatorIdAndIdGreaterThan(userId, page.afterId(),
+                page.toPageable(Sort.by("id")));
+        return page.toPage(new ArrayList<>(eventDtoAssembler.toShortDtos(events)),
+                event -> PageCursor.afterId(event.getId()));
     }
 
     @Override
@@ -98,7 +111,7 @@ public class EventServiceImpl implements EventService {
             throw new UserNotFoundException(userId);
         }
         Event event = eventRepository.findById(eventId).orElseThrow(() -> new EventNotFoundException(eventId));
-        return toEventFullDto(event);
+        return eventDtoAssembler.toFullDto(event);
     }
 
     @Override
@@ -156,13 +169,18 @@ public class EventServiceImpl implements EventService {
             event.setState(EventState.CANCELED);
         }
 
-        return toEventFullDto(eventRepository.save(event));
+        event = eventRepository.save(event);
+        publishedEventCache.evictEvent(eventId);
+        pinnedCompilationSnapshot.onEventChanged(eventId);
+        aggregateVersions.bump(AggregateVersions.Aggregate.EVENT);
+        return eventDtoAssembler.toFullDto(event);
     }
 
     @Override
     @Transactional
     public EventFullDto updateEventByAdmin(Long eventId, UpdateEventAdminRequestDto dto) {
         Event event = eventRepository.findById(eventId).orElseThrow(() -> new EventNotFoundException(eventId));
+        boolean wasPublished = event.getState() == EventState.PUBLISHED;
 
         if (dto.getStateAction() != null) {
             if (dto.getStateAction() == StateAdminAction.PUBLISH_EVENT) {
@@ -207,13 +225,21 @@ public class EventServiceImpl implements EventService {
             locationRepository.save(location);
         }
 
-        return toEventFullDto(eventRepository.save(event));
+        event = eventRepository.save(event);
+        publishedEventCache.evictEvent(eventId);
+        pinnedCompilationSnapshot.onEventChanged(eventId);
+        if (wasPublished || event.getState() == EventState.PUBLISHED) {
+            publishedEventCache.evictListings();
+        }
+        // Версия увеличивается после всех инвалидаций: иначе новый ETag мог бы достаться ещё не удалённой странице.
+        aggregateVersions.bump(AggregateVersions.Aggregate.EVENT);
+        return eventDtoAssembler.toFullDto(event);
     }
 
     @Override
-    public List<EventFullDto> getEventsByAdmin(List<Long> users, List<String> states,
-                                               List<Long> categories, String rangeStart,
-                                               String rangeEnd, int from, int size) {
+    public CursorPage<EventFullDto> getEventsByAdmin(List<Long> users, List<String> states,
+                                                     List<Long> categories, String rangeStart,
+                                                     String rangeEnd, PageParams page) {
         LocalDateTime start = parseDateTime(rangeStart);
         LocalDateTime end = parseDateTime(rangeEnd);
 
@@ -229,12 +255,12 @@ public class EventServiceImpl implements EventService {
                 categories,
                 start,
                 end,
-                PageRequest.of(from / size, size)
+                page.afterId(),
+                page.toPageable(Sort.by("id"))
         );
 
-        return events.stream()
-                .map(EventMapper::toEventFullDto)
-                .collect(Collectors.toList());
+        return page.toPage(new ArrayList<>(eventDtoAssembler.toFullDtos(events)),
+                event -> PageCursor.afterId(event.getId()));
     }
 
     private LocalDateTime parseDateTime(String dateTimeStr) {
@@ -249,79 +275,142 @@ public class EventServiceImpl implements EventService {
     }
 
     @Override
-    public List<EventShortDto> getPublishedEvents(String text, List<Long> categories, Boolean paid,
-                                                  String rangeStart, String rangeEnd, boolean onlyAvailable,
-                                                  String sort, int from, int size, HttpServletRequest request) {
-        sendHit(request);
-
-        LocalDateTime start = null;
-        LocalDateTime end = null;
+    public CursorPage<EventShortDto> getPublishedEvents(String text, List<Long> categories, Boolean paid,
+                                                        String rangeStart, String rangeEnd, boolean onlyAvailable,
+                                                        String sort, PageParams page, HttpServletRequest request) {
+        recordHit(request);
 
-        try {
-            if (rangeStart != null) {
-                start = LocalDateTime.parse(rangeStart, formatter);
-            }
-            if (rangeEnd != null) {
-                end = LocalDateTime.parse(rangeEnd, formatter);
-            }
-        } catch (Exception e) {
-            throw new ValidationRequestException("Неверный формат даты. Ожидается: yyyy-MM-dd HH:mm:ss");
-        }
+        LocalDateTime start = parseDateTime(rangeStart);
+        LocalDateTime end = parseDateTime(rangeEnd);
 
         if (start != null && end != null && start.isAfter(end)) {
             throw new ValidationRequestException("Дата начала должна быть раньше даты окончания.");
         }
 
-        List<Event> events = eventRepository.findPublishedEvents(
-                text,
-                categories,
-                paid,
-                start != null ? start : LocalDateTime.now(),
-                end,
-                PageRequest.of(from / size, size)
-        );
+        EventSort eventSort = toEventSort(sort);
+        LocalDateTime afterDate = eventSort == EventSort.EVENT_DATE ? parseCursorKey(page, this::parseDateTime) : null;
+        Long afterViews = eventSort == EventSort.VIEWS ? parseCursorKey(page, Long::valueOf) : null;
+        if (eventSort == null && page.afterKey() != null) {
+            throw new ValidationRequestException("Курсор не соответствует сортировке.");
+        }
+
+        PublishedEventCache.ListingKey key = PublishedEventCache.ListingKey.of(text, categories, paid, start, end,
+                onlyAvailable, sort, page);
+        CursorPage<EventShortDto> cached = publishedEventCache.getListing(key, () -> {
+            LocalDateTime searchStart = key.rangeStart();
+            List<Event> events;
+            Pageable pageable = page.toPageable(toSort(eventSort));
+            if (text != null && !text.isBlank() && eventSort == null && !page.isKeyset()) {
+                events = eventRepository.searchPublishedEvents(text, categories, paid, searchStart, end,
+                        onlyAvailable, page.toPageable(Sort.unsorted()));
+            } else if (afterDate != null) {
+                events = eventRepository.findPublishedEventsAfterDate(text, categories, paid, searchStart, end,
+                        onlyAvailable, afterDate, page.afterId(), pageable);
+            } else if (afterViews != null) {
+                events = eventRepository.findPublishedEventsAfterViews(text, categories, paid, searchStart, end,
+                        onlyAvailable, afterViews, page.afterId(), pageable);
+            } else {
+                events = eventRepository.findPublishedEvents(text, categories, paid, searchStart, end,
+                        onlyAvailable, page.afterId(), pageable);
+            }
+            return page.toPage(eventDtoAssembler.toShortDtos(events), dto -> toCursor(dto, eventSort));
+        });
+
+        return cached.map(dtos -> dtos.stream()
+                .map(dto -> dto.toBuilder()
+                        .views(dto.getViews() + eventViewCounter.getPendingViews(dto.getId()))
+                        .build())
+                .collect(Collectors.toList()));
+    }
 
-        if (onlyAvailable) {
-            events = events.stream()
-                    .filter(event -> EventMapper.countConfirmedRequests(event.getRequests()) < event.getParticipantLimit())
-                    .toList();
+    private EventSort toEventSort(String sort) {
+        if (sort == null) {
+            return null;
         }
+        try {
+            return EventSort.valueOf(sort);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationRequestException("Неверный параметр сортировки.");
+        }
+    }
 
-        List<EventShortDto> dtos = events.stream()
-                .map(EventMapper::toEventShortDto)
-                .collect(Collectors.toList());
+    private Sort toSort(EventSort eventSort) {
+        if (eventSort == null) {
+            return Sort.by("id");
+        }
+        return switch (eventSort) {
+            case EVENT_DATE -> Sort.by("event_date", "id");
+            case VIEWS -> Sort.by("views", "id");
+        };
+    }
 
-        if (sort != null) {
-            if (sort.equals("EVENT_DATE")) {
-                dtos.sort(Comparator.comparing(EventShortDto::getEventDate));
-            } else if (sort.equals("VIEWS")) {
-                dtos.sort(Comparator.comparing(EventShortDto::getViews));
-            } else {
-                throw new ValidationRequestException("Неверный параметр сортировки.");
+    /**
+     * Разбирает значение ключа сортировки из курсора. Пустой ключ допустим только у курсора первой страницы.
+     */
+    private <T> T parseCursorKey(PageParams page, Function<String, T> parser) {
+        if (page.afterKey() == null) {
+            if (page.afterId() != 0) {
+                throw new ValidationRequestException("Курсор не соответствует сортировке.");
             }
+            return null;
+        }
+        try {
+            return parser.apply(page.afterKey());
+        } catch (IllegalArgumentException | ValidationRequestException e) {
+            throw new ValidationRequestException("Курсор не соответствует сортировке.");
         }
+    }
 
-        return dtos;
+    /**
+     * Курсор строится при загрузке страницы по сохранённым просмотрам, до добавления несохранённых: курсор должен
+     * совпадать с ключом, по которому отсортирована страница.
+     * При сортировке VIEWS страницы могут повторять события, см. {@link EventRepository#findPublishedEventsAfterViews}.
+     */
+    private static PageCursor toCursor(EventShortDto dto, EventSort eventSort) {
+        if (eventSort == null) {
+            return PageCursor.afterId(dto.getId());
+        }
+        return switch (eventSort) {
+            case EVENT_DATE -> new PageCursor(dto.getEventDate(), dto.getId());
+            case VIEWS -> new PageCursor(String.valueOf(dto.getViews()), dto.getId());
+        };
     }
 
     @Override
     public EventFullDto getPublishedEventById(Long eventId, HttpServletRequest request) {
-        Event event = eventRepository.findByIdAndState(eventId, EventState.PUBLISHED)
-                .orElseThrow(() -> new EventNotFoundException(eventId));
+        EventFullDto cached = getPublishedDetail(eventId);
 
-        int previousHits = getHits(request);
-        sendHit(request);
-        int newHits = getHits(request);
+        recordView(eventId, request);
 
-        if (newHits > previousHits) {
-            event.setViews(event.getViews() + 1);
-            eventRepository.save(event);
+        return cached.toBuilder()
+                .views(cached.getViews() + eventViewCounter.getPendingViews(eventId))
+                .build();
+    }
+
+    @Override
+    public void requirePublished(Long eventId) {
+        if (!publishedEventCache.hasDetail(eventId)
+                && !eventRepository.existsByIdAndState(eventId, EventState.PUBLISHED)) {
+            throw new EventNotFoundException(eventId);
         }
+    }
 
-        return toEventFullDto(event);
+    private EventFullDto getPublishedDetail(Long eventId) {
+        return publishedEventCache.getDetail(eventId, () -> {
+            Event event = eventRepository.findByIdAndState(eventId, EventState.PUBLISHED)
+                    .orElseThrow(() -> new EventNotFoundException(eventId));
+            return eventDtoAssembler.toFullDto(event);
+        });
     }
 
-    private void sendHit(HttpServletRequest request) {
+    @Override
+    public void recordView(Long eventId, HttpServletRequest request) {
+        recordHit(request);
+        eventViewCounter.registerView(eventId, request.getRemoteAddr());
+    }
+
+    @Override
+    public void recordHit(HttpServletRequest request) {
         statClient.addHit(HitDto.builder()
                 .app("ewm-main-service")
                 .uri(request.getRequestURI())
@@ -329,18 +418,4 @@ public class EventServiceImpl implements EventService {
                 .timestamp(LocalDateTime.now().format(formatter))
                 .build());
     }
-
-    private int getHits(HttpServletRequest request) {
-        ResponseEntity<StatDto[]> response = statClient.getStats(
-                LocalDateTime.now().minusYears(100).format(formatter),
-                LocalDateTime.now().format(formatter),
-                new String[]{request.getRequestURI()},
-                true
-        );
-
-        if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null && response.getBody().length > 0) {
-            return Math.toIntExact(response.getBody()[0].getHits());
-        }
-        return 0;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package ru.practicum.event.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.event.repository.EventRepository;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Считает уникальные по IP просмотры событий в памяти и периодически переносит их в events.views.
+ *
+ * <p>Просмотры не меняют версию событий в ETag: иначе каждый новый зритель отменял бы 304 для всех публичных
+ * ответов, поэтому в ответе 304 число просмотров может отставать.
+ *
+ * <p>Уже учтённые пары (событие, IP) хранятся в ограниченном кэше: зритель, вытесненный по размеру или не
+ * заходивший дольше срока хранения, будет учтён повторно.
+ */
+@Slf4j
+@Component
+public class EventViewCounter {
+    private final EventRepository eventRepository;
+    private final PublishedEventCache publishedEventCache;
+
+    private final Cache<Viewer, Boolean> viewers;
+    private final Map<Long, Long> pendingViews = new ConcurrentHashMap<>();
+
+    public EventViewCounter(EventRepository eventRepository,
+                            PublishedEventCache publishedEventCache,
+                            MeterRegistry meterRegistry,
+                            @Value("${event-views.viewers.max-size:1000000}") long viewersMaxSize,
+                            @Value("${event-views.viewers.ttl:24h}") Duration viewersTtl) {
+        this.eventRepository = eventRepository;
+        this.publishedEventCache = publishedEventCache;
+        this.viewers = Caffeine.newBuilder()
+                .maximumSize(viewersMaxSize)
+                .expireAfterAccess(viewersTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, viewers, "events.viewers");
+    }
+
+    public boolean registerView(Long eventId, String ip) {
+        boolean isNewViewer = viewers.asMap().putIfAbsent(new Viewer(eventId, ip), Boolean.TRUE) == null;
+        if (isNewViewer) {
+            pendingViews.merge(eventId, 1L, Long::sum);
+        }
+        return isNewViewer;
+    }
+
+    public long getPendingViews(Long eventId) {
+        return pendingViews.getOrDefault(eventId, 0L);
+    }
+
+    /**
+     * Сохраняет накопленные просмотры. Сохранённое вычитается из счётчика только после успешного обновления,
+     * так что при ошибке просмотры остаются в памяти до следующей попытки. Сбросы не пересекаются: иначе
+     * параллельный сброс при остановке сохранил бы те же просмотры второй раз.
+     */
+    @Scheduled(fixedDelayString = "${event-views.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        for (Map.Entry<Long, Long> pending : pendingViews.entrySet()) {
+            Long eventId = pending.getKey();
+            long delta = pending.getValue();
+            try {
+                eventRepository.incrementViews(eventId, delta);
+            } catch (Exception e) {
+                log.error("Не удалось сохранить {} просмотров события id={}", delta, eventId, e);
+                continue;
+            }
+            publishedEventCache.evictViews(eventId);
+            pendingViews.computeIfPresent(eventId, (id, views) -> views == delta ? null : views - delta);
+        }
+    }
+
+    /**
+     * Сохраняет просмотры, накопленные после последнего сброса по расписанию, чтобы они не терялись при остановке.
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        if (!pendingViews.isEmpty()) {
+            log.warn("При остановке не сохранены просмотры {} событий", pendingViews.size());
+        }
+    }
+
+    private record Viewer(Long eventId, String ip) {
+    }
+}
@@ -0,0 +1,164 @@
+package ru.practicum.event.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.event.dto.EventFullDto;
+import ru.practicum.event.dto.EventShortDto;
+import ru.practicum.pagination.CursorPage;
+import ru.practicum.pagination.PageParams;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static ru.practicum.util.TransactionCallbacks.afterCommit;
+
+/**
+ * Кэш публичных ответов по опубликованным событиям: карточка по id и страницы поиска по нормализованному запросу.
+ *
+ * <p>Просмотры в закэшированных DTO соответствуют events.views на момент загрузки: после сохранения просмотров
+ * записи события удаляются через {@link #evictViews}, а несохранённые просмотры добавляет вызывающий код.
+ * Курсор следующей страницы хранится вместе со страницей в том виде, в каком он построен при загрузке.
+ * Инвалидация выполняется после коммита текущей транзакции, чтобы параллельный запрос не закэшировал данные
+ * до изменения.
+ */
+@Component
+public class PublishedEventCache {
+    private final Cache<Long, EventFullDto> details;
+    private final Cache<ListingKey, CursorPage<EventShortDto>> listings;
+    private final Map<Long, Set<ListingKey>> listingsByEvent = new ConcurrentHashMap<>();
+
+    public PublishedEventCache(MeterRegistry meterRegistry,
+                               @Value("${event-cache.detail.max-size:10000}") long detailMaxSize,
+                               @Value("${event-cache.detail.ttl:5m}") Duration detailTtl,
+                               @Value("${event-cache.listing.max-size:1000}") long listingMaxSize,
+                               @Value("${event-cache.listing.ttl:30s}") Duration listingTtl) {
+        this.details = Caffeine.newBuilder()
+                .maximumSize(detailMaxSize)
+                .expireAfterWrite(detailTtl)
+                .recordStats()
+                .build();
+        this.listings = Caffeine.newBuilder()
+                .maximumSize(listingMaxSize)
+                .expireAfterWrite(listingTtl)
+                .recordStats()
+                .executor(Runnable::run)
+                .<ListingKey, CursorPage<EventShortDto>>removalListener((key, page, cause) -> unindex(key, page))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, details, "events.published.detail");
+        CaffeineCacheMetrics.monitor(meterRegistry, listings, "events.published.listing");
+    }
+
+    public EventFullDto getDetail(Long eventId, Supplier<EventFullDto> loader) {
+        return details.get(eventId, id -> loader.get());
+    }
+
+    /**
+     * Есть ли в кэше карточка события. Карточка удаляется после коммита снятия с публикации, поэтому
+     * закэшированное событие опубликовано.
+     */
+    public boolean hasDetail(Long eventId) {
+        return details.getIfPresent(eventId) != null;
+    }
+
+    public CursorPage<EventShortDto> getListing(ListingKey key, Supplier<CursorPage<EventShortDto>> loader) {
+        return listings.get(key, k -> {
+            CursorPage<EventShortDto> page = loader.get().map(List::copyOf);
+            page.getItems().forEach(dto -> listingsByEvent
+                    .computeIfAbsent(dto.getId(), id -> ConcurrentHashMap.newKeySet())
+                    .add(k));
+            return page;
+        });
+    }
+
+    /**
+     * Удаляет карточку события и страницы, в которые оно попало.
+     */
+    public void evictEvent(Long eventId) {
+        afterCommit(() -> invalidateEvent(eventId));
+    }
+
+    /**
+     * Удаляет карточку и страницы события после сохранения его просмотров. Править закэшированные просмотры нельзя:
+     * загрузка между коммитом просмотров и правкой уже прочитала их из базы, и прибавка учла бы их второй раз.
+     * Удаление выполняется сразу, потому что просмотры сохраняются вне транзакции.
+     */
+    public void evictViews(Long eventId) {
+        invalidateEvent(eventId);
+    }
+
+    /**
+     * Удаляет событие и страницы с onlyAvailable: после изменения числа подтверждённых заявок событие
+     * могло как выпасть из них, так и появиться.
+     */
+    public void evictParticipation(Long eventId) {
+        evictEvent(eventId);
+        afterCommit(() -> listings.invalidateAll(listings.asMap().keySet().stream()
+                .filter(ListingKey::onlyAvailable)
+                .toList()));
+    }
+
+    /**
+     * Удаляет все страницы: публикация или изменение фильтруемых полей может добавить событие в любую из них.
+     */
+    public void evictListings() {
+        afterCommit(listings::invalidateAll);
+    }
+
+    public void evictAll() {
+        afterCommit(() -> {
+            details.invalidateAll();
+            listings.invalidateAll();
+        });
+    }
+
+    private void invalidateEvent(Long eventId) {
+        details.invalidate(eventId);
+        Set<ListingKey> keys = listingsByEvent.remove(eventId);
+        if (keys != null) {
+            listings.invalidateAll(keys);
+        }
+    }
+
+    private void unindex(ListingKey key, CursorPage<EventShortDto> page) {
+        if (page == null || listings.asMap().containsKey(key)) {
+            return;
+        }
+        for (EventShortDto dto : page.getItems()) {
+            listingsByEvent.computeIfPresent(dto.getId(), (id, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    /**
+     * Нормализованные параметры GET /events: текст в нижнем регистре, категории отсортированы и без повторов.
+     *
+     * <p>Без rangeStart поиск идёт от текущего времени, округлённого вниз до минуты: страница загружается
+     * именно от rangeStart ключа, поэтому закэшированный ответ не зависит от момента загрузки.
+     */
+    public record ListingKey(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart,
+                             LocalDateTime rangeEnd, boolean onlyAvailable, String sort, PageParams page) {
+        public static ListingKey of(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart,
+                                    LocalDateTime rangeEnd, boolean onlyAvailable, String sort, PageParams page) {
+            return new ListingKey(
+                    text != null ? text.toLowerCase() : null,
+                    categories != null ? categories.stream().distinct().sorted().toList() : null,
+                    paid, rangeStart != null ? rangeStart : defaultRangeStart(), rangeEnd, onlyAvailable, sort, page);
+        }
+
+        public static LocalDateTime defaultRangeStart() {
+            return LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.exceptions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Пишет {@link ApiError} одной строкой NDJSON, чтобы ошибки потоковых выгрузок доходили до клиента,
+ * принимающего только application/x-ndjson. Регистрируется последним в {@link ErrorConverterConfig},
+ * поэтому без явного запроса NDJSON ошибки по-прежнему отдаются как application/json.
+ */
+public class ApiErrorNdjsonConverter extends MappingJackson2HttpMessageConverter {
+
+    public ApiErrorNdjsonConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+        setSupportedMediaTypes(List.of(MediaType.APPLICATION_NDJSON));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ApiError.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return supports(clazz) && super.canWrite(clazz, mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return supports(clazz) && super.canWrite(type, clazz, mediaType);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+}
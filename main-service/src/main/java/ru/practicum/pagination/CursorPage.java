@@ -0,0 +1,42 @@
+package ru.practicum.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница списка и курсор следующей страницы. Курсор есть только в keyset-режиме и только у полной страницы,
+ * поэтому последняя страница может оказаться пустой.
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public static <T> CursorPage<T> of(List<T> items) {
+        return new CursorPage<>(items, null);
+    }
+
+    public static <T> CursorPage<T> of(List<T> items, int size, Function<T, PageCursor> cursorOf) {
+        String nextCursor = items.size() < size ? null : cursorOf.apply(items.get(items.size() - 1)).encode();
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    public <R> CursorPage<R> map(Function<List<T>, List<R>> mapper) {
+        return new CursorPage<>(mapper.apply(items), nextCursor);
+    }
+
+    public ResponseEntity<List<T>> toResponseEntity() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.body(items);
+    }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.pagination;
+
+import lombok.EqualsAndHashCode;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Страница, начинающаяся ровно с from-го элемента, даже если from не кратен size.
+ */
+@EqualsAndHashCode(callSuper = true)
+public class OffsetPageRequest extends PageRequest {
+    private final long offset;
+
+    private OffsetPageRequest(int from, int size, Sort sort) {
+        super(from / size, size, sort);
+        this.offset = from;
+    }
+
+    public static OffsetPageRequest of(int from, int size, Sort sort) {
+        return new OffsetPageRequest(from, size, sort);
+    }
+
+    @Override
+    public long getOffset() {
+        return offset;
+    }
+}
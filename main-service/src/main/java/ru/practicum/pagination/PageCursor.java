@@ -0,0 +1,49 @@
+package ru.practicum.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import ru.practicum.exceptions.ValidationRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Позиция keyset-пагинации: значение ключа сортировки и id последнего элемента страницы.
+ * Клиенту отдаётся как непрозрачная base64url-строка.
+ */
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public class PageCursor {
+    private static final PageCursor FIRST = new PageCursor(null, 0L);
+
+    private final String key;
+    private final long id;
+
+    public static PageCursor afterId(long id) {
+        return new PageCursor(null, id);
+    }
+
+    /**
+     * Разбирает курсор из запроса; пустая строка означает первую страницу.
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor.isEmpty()) {
+            return FIRST;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(':');
+            String key = value.substring(0, separator);
+            return new PageCursor(key.isEmpty() ? null : key, Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ValidationRequestException("Некорректный курсор: " + cursor);
+        }
+    }
+
+    public String encode() {
+        String value = (key != null ? key : "") + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
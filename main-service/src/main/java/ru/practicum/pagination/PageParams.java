@@ -0,0 +1,52 @@
+package ru.practicum.pagination;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Параметры страницы списка: смещение from/size или, если передан cursor, keyset-режим,
+ * в котором from игнорируется и страница начинается сразу после позиции курсора.
+ */
+@Getter
+@EqualsAndHashCode
+public class PageParams {
+    private final int from;
+    private final int size;
+    private final PageCursor cursor;
+
+    private PageParams(int from, int size, PageCursor cursor) {
+        this.from = from;
+        this.size = size;
+        this.cursor = cursor;
+    }
+
+    public static PageParams of(int from, int size, String cursor) {
+        return cursor != null ? new PageParams(0, size, PageCursor.decode(cursor)) : new PageParams(from, size, null);
+    }
+
+    public boolean isKeyset() {
+        return cursor != null;
+    }
+
+    public long afterId() {
+        return cursor != null ? cursor.getId() : 0;
+    }
+
+    public String afterKey() {
+        return cursor != null ? cursor.getKey() : null;
+    }
+
+    public Pageable toPageable(Sort sort) {
+        return isKeyset() ? PageRequest.of(0, size, sort) : OffsetPageRequest.of(from, size, sort);
+    }
+
+    public <T> CursorPage<T> toPage(List<T> items, Function<T, PageCursor> cursorOf) {
+        return isKeyset() ? CursorPage.of(items, size, cursorOf) : CursorPage.of(items);
+    }
+}
@@ -1,9 +1,13 @@
 package ru.practicum.request.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -19,6 +23,9 @@ import ru.practicum.request.dto.EventRequestStatusUpdateResultDto;
 import ru.practicum.request.dto.RequestDto;
 import ru.practicum.request.service.RequestService;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -28,6 +35,7 @@ import java.util.List;
 public class RequestController {
 
     private final RequestService requestService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/requests")
     @ResponseStatus(HttpStatus.CREATED)
@@ -53,6 +61,26 @@ public class RequestController {
         return requestService.getParticipationRequestsForUserEvent(userId, eventId);
     }
 
+    /**
+     * Выгрузка заявок события построчно в NDJSON по мере чтения из БД, без сборки списка в памяти.
+     */
+    @GetMapping(value = "/events/{eventId}/requests", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportParticipationRequestsForUserEvent(@PathVariable @Positive Long userId,
+                                                        @PathVariable @Positive Long eventId,
+                                                        HttpServletResponse response) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(RequestDto.class);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        requestService.exportParticipationRequestsForUserEvent(userId, eventId, requestDto -> {
+            try {
+                out.write(writer.writeValueAsBytes(requestDto));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     @PatchMapping("/events/{eventId}/requests")
     public EventRequestStatusUpdateResultDto changeParticipationRequestsStatus(@PathVariable @Positive Long userId,
                                                                                @PathVariable @Positive Long eventId,
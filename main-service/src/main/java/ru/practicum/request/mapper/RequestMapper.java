@@ -3,6 +3,7 @@ package ru.practicum.request.mapper;
 import lombok.NoArgsConstructor;
 import ru.practicum.request.dto.RequestDto;
 import ru.practicum.request.model.Request;
+import ru.practicum.request.model.RequestSummary;
 
 import java.time.format.DateTimeFormatter;
 
@@ -23,4 +24,14 @@ public class RequestMapper {
                 .created(request.getCreated().format(FORMATTER))
                 .build();
     }
-}
+
+    public static RequestDto toRequestDto(RequestSummary request) {
+        return RequestDto.builder()
+                .id(request.getId())
+                .event(request.getEvent())
+                .requester(request.getRequester())
+                .status(request.getStatus())
+                .created(request.getCreated().format(FORMATTER))
+                .build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package ru.practicum.request.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class EventRequestCount {
+    private Long eventId;
+    private Long count;
+}
@@ -0,0 +1,18 @@
+package ru.practicum.request.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Проекция заявки на участие для чтения без загрузки сущностей.
+ */
+public interface RequestSummary {
+    Long getId();
+
+    Long getEvent();
+
+    Long getRequester();
+
+    String getStatus();
+
+    LocalDateTime getCreated();
+}
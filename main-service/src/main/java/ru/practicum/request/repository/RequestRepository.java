@@ -1,14 +1,24 @@
 package ru.practicum.request.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.event.model.Event;
+import ru.practicum.request.model.EventRequestCount;
 import ru.practicum.request.model.Request;
 import ru.practicum.request.model.RequestStatus;
+import ru.practicum.request.model.RequestSummary;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface RequestRepository extends JpaRepository<Request, Long> {
 
@@ -20,6 +30,64 @@ public interface RequestRepository extends JpaRepository<Request, Long> {
 
     List<Request> findByEventIn(List<Event> events);
 
+    @Query("""
+            SELECT new ru.practicum.request.model.EventRequestCount(r.event.id, COUNT(r))
+            FROM Request r
+            WHERE r.event.id IN :eventIds AND r.status = :status
+            GROUP BY r.event.id
+            """)
+    List<EventRequestCount> countByEventIdInAndStatus(@Param("eventIds") Collection<Long> eventIds,
+                                                      @Param("status") RequestStatus status);
+
+    /**
+     * Число подтверждённых заявок по каждому событию одним запросом; событий без заявок в результате нет.
+     */
+    default Map<Long, Long> countConfirmedByEventIds(Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return countByEventIdInAndStatus(eventIds, RequestStatus.CONFIRMED).stream()
+                .collect(Collectors.toMap(EventRequestCount::getEventId, EventRequestCount::getCount));
+    }
+
+    /**
+     * Заявки события по возрастанию id через серверный курсор; поток нужно читать и закрывать внутри транзакции.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = """
+            SELECT id, event_id AS event, requester_id AS requester, status, created
+            FROM requests
+            WHERE event_id = :eventId
+            ORDER BY id
+            """, nativeQuery = true)
+    Stream<RequestSummary> streamByEventId(@Param("eventId") Long eventId);
+
+    boolean existsByIdInAndEventId(Collection<Long> ids, Long eventId);
+
+    long countByIdInAndEventIdAndStatusNot(Collection<Long> ids, Long eventId, RequestStatus status);
+
+    /**
+     * Подтверждает не более capacity заявок из ids в статусе PENDING, начиная с ранних по id.
+     */
+    @Query(value = """
+            UPDATE requests SET status = 'CONFIRMED'
+            WHERE id IN (SELECT id FROM requests
+                         WHERE id IN (:ids) AND event_id = :eventId AND status = 'PENDING'
+                         ORDER BY id
+                         LIMIT :capacity)
+            RETURNING id, event_id AS event, requester_id AS requester, status, created
+            """, nativeQuery = true)
+    List<RequestSummary> confirmPending(@Param("ids") Collection<Long> ids,
+                                        @Param("eventId") Long eventId,
+                                        @Param("capacity") long capacity);
+
+    @Query(value = """
+            UPDATE requests SET status = 'REJECTED'
+            WHERE id IN (:ids) AND event_id = :eventId AND status = 'PENDING'
+            RETURNING id, event_id AS event, requester_id AS requester, status, created
+            """, nativeQuery = true)
+    List<RequestSummary> rejectPending(@Param("ids") Collection<Long> ids, @Param("eventId") Long eventId);
+
     @Modifying(clearAutomatically = true)
     @Query("UPDATE Request r SET r.status = :newStatus WHERE r.event = :event AND r.status = :searchStatus")
     void updateRequestStatusByEventIdAndStatus(@Param("event") Event event,
@@ -5,6 +5,7 @@ import ru.practicum.request.dto.EventRequestStatusUpdateResultDto;
 import ru.practicum.request.dto.RequestDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface RequestService {
 
@@ -16,6 +17,8 @@ public interface RequestService {
 
     List<RequestDto> getParticipationRequestsForUserEvent(Long userId, Long eventId);
 
+    void exportParticipationRequestsForUserEvent(Long userId, Long eventId, Consumer<RequestDto> consumer);
+
     EventRequestStatusUpdateResultDto changeParticipationRequestsStatus(Long userId, Long eventId,
                                                                         EventRequestStatusUpdateRequestDto eventRequestStatusUpdateRequest);
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 import ru.practicum.event.model.Event;
 import ru.practicum.event.model.EventState;
 import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.service.PublishedEventCache;
 import ru.practicum.exceptions.EventNotFoundException;
 import ru.practicum.exceptions.ForbiddenException;
 import ru.practicum.exceptions.UserNotFoundException;
@@ -15,14 +16,19 @@ import ru.practicum.request.dto.RequestDto;
 import ru.practicum.request.mapper.RequestMapper;
 import ru.practicum.request.model.Request;
 import ru.practicum.request.model.RequestStatus;
+import ru.practicum.request.model.RequestSummary;
 import ru.practicum.request.repository.RequestRepository;
 import ru.practicum.user.model.User;
 import ru.practicum.user.repository.UserRepository;
+import ru.practicum.util.AggregateVersions;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static ru.practicum.request.mapper.RequestMapper.toRequestDto;
 
@@ -33,6 +39,8 @@ public class RequestServiceImpl implements RequestService {
     private final RequestRepository requestRepository;
     private final UserRepository userRepository;
     private final EventRepository eventRepository;
+    private final PublishedEventCache publishedEventCache;
+    private final AggregateVersions aggregateVersions;
 
     @Override
     @Transactional
@@ -52,14 +60,19 @@ public class RequestServiceImpl implements RequestService {
         if (event.getState() != EventState.PUBLISHED) {
             throw new ForbiddenException("Нельзя участвовать в неопубликованном событии.");
         }
+
+        RequestStatus status = (!event.isRequestModeration() || event.getParticipantLimit() == 0)
+                ? RequestStatus.CONFIRMED : RequestStatus.PENDING;
+        if (status == RequestStatus.CONFIRMED && event.getParticipantLimit() != 0) {
+            // Заявка сразу занимает место: проверка лимита и вставка должны идти под блокировкой события
+            event = eventRepository.findByIdForUpdate(eventId)
+                    .orElseThrow(() -> new EventNotFoundException(eventId));
+        }
         if (event.getParticipantLimit() != 0 &&
                 requestRepository.countByEventIdAndStatus(eventId, RequestStatus.CONFIRMED) >= event.getParticipantLimit()) {
             throw new ForbiddenException("Достигнут лимит участников.");
         }
 
-        RequestStatus status = (!event.isRequestModeration() || event.getParticipantLimit() == 0)
-                ? RequestStatus.CONFIRMED : RequestStatus.PENDING;
-
         Request request = Request.builder()
                 .event(event)
                 .requester(user)
@@ -67,6 +80,10 @@ public class RequestServiceImpl implements RequestService {
                 .status(status)
                 .build();
 
+        if (status == RequestStatus.CONFIRMED) {
+            publishedEventCache.evictParticipation(eventId);
+            aggregateVersions.bump(AggregateVersions.Aggregate.EVENT);
+        }
         return toRequestDto(requestRepository.save(request));
     }
 
@@ -83,6 +100,10 @@ public class RequestServiceImpl implements RequestService {
             throw new ForbiddenException("Можно отменить только собственный запрос.");
         }
 
+        if (request.getStatus() == RequestStatus.CONFIRMED) {
+            publishedEventCache.evictParticipation(request.getEvent().getId());
+            aggregateVersions.bump(AggregateVersions.Aggregate.EVENT);
+        }
         request.setStatus(RequestStatus.CANCELED);
         return toRequestDto(requestRepository.save(request));
     }
@@ -113,6 +134,21 @@ public class RequestServiceImpl implements RequestService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional
+    public void exportParticipationRequestsForUserEvent(Long userId, Long eventId, Consumer<RequestDto> consumer) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        if (eventRepository.findByIdAndInitiatorId(eventId, userId).isEmpty()) {
+            throw new ForbiddenException("Пользователь не инициатор события.");
+        }
+
+        try (Stream<RequestSummary> requests = requestRepository.streamByEventId(eventId)) {
+            requests.map(RequestMapper::toRequestDto).forEach(consumer);
+        }
+    }
+
     @Override
     @Transactional
     public EventRequestStatusUpdateResultDto changeParticipationRequestsStatus(Long userId, Long eventId,
@@ -120,16 +156,16 @@ public class RequestServiceImpl implements RequestService {
         if (!userRepository.existsById(userId)) {
             throw new UserNotFoundException(userId);
         }
-        Event event = eventRepository.findById(eventId)
+        Event event = eventRepository.findByIdForUpdate(eventId)
                 .orElseThrow(() -> new EventNotFoundException(eventId));
 
-        List<Request> requests = requestRepository.findAllById(dto.getRequestIds());
+        List<Long> requestIds = dto.getRequestIds();
         EventRequestStatusUpdateResultDto result = EventRequestStatusUpdateResultDto.builder()
                 .confirmedRequests(new ArrayList<>())
                 .rejectedRequests(new ArrayList<>())
                 .build();
 
-        if (requests.isEmpty()) {
+        if (requestIds == null || requestIds.isEmpty() || !requestRepository.existsByIdInAndEventId(requestIds, eventId)) {
             return result;
         }
 
@@ -145,38 +181,36 @@ public class RequestServiceImpl implements RequestService {
             if (confirmed >= limit) {
                 throw new ForbiddenException("Достигнут лимит участников.");
             }
+            checkAllPending(requestIds, eventId);
 
-            for (Request request : requests) {
-                if (request.getStatus() != RequestStatus.PENDING) {
-                    throw new ForbiddenException("Изменять можно только заявки в статусе PENDING.");
-                }
-                if (confirmed < limit) {
-                    request.setStatus(RequestStatus.CONFIRMED);
-                    result.getConfirmedRequests().add(toRequestDto(request));
-                    confirmed++;
-                } else {
-                    request.setStatus(RequestStatus.REJECTED);
-                    result.getRejectedRequests().add(toRequestDto(request));
-                }
-            }
-
-            requestRepository.saveAll(requests);
+            result.setConfirmedRequests(toRequestDtos(requestRepository.confirmPending(requestIds, eventId,
+                    limit - confirmed)));
+            result.setRejectedRequests(toRequestDtos(requestRepository.rejectPending(requestIds, eventId)));
+            publishedEventCache.evictParticipation(eventId);
+            aggregateVersions.bump(AggregateVersions.Aggregate.EVENT);
 
-            if (confirmed == limit) {
+            if (confirmed + result.getConfirmedRequests().size() == limit) {
                 requestRepository.updateRequestStatusByEventIdAndStatus(event, RequestStatus.PENDING, RequestStatus.REJECTED);
             }
 
         } else if (targetStatus == RequestStatus.REJECTED) {
-            for (Request request : requests) {
-                if (request.getStatus() != RequestStatus.PENDING) {
-                    throw new ForbiddenException("Изменять можно только заявки в статусе PENDING.");
-                }
-                request.setStatus(RequestStatus.REJECTED);
-                result.getRejectedRequests().add(toRequestDto(request));
-            }
-            requestRepository.saveAll(requests);
+            checkAllPending(requestIds, eventId);
+            result.setRejectedRequests(toRequestDtos(requestRepository.rejectPending(requestIds, eventId)));
         }
 
         return result;
     }
-}
\ No newline at end of file
+
+    private void checkAllPending(List<Long> requestIds, Long eventId) {
+        if (requestRepository.countByIdInAndEventIdAndStatusNot(requestIds, eventId, RequestStatus.PENDING) > 0) {
+            throw new ForbiddenException("Изменять можно только заявки в статусе PENDING.");
+        }
+    }
+
+    private static List<RequestDto> toRequestDtos(List<RequestSummary> requests) {
+        return requests.stream()
+                .sorted(Comparator.comparing(RequestSummary::getId))
+                .map(RequestMapper::toRequestDto)
+                .collect(Collectors.toList());
+    }
+}
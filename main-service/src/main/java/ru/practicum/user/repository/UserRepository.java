@@ -8,5 +8,7 @@ import java.util.List;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
-    List<User> findByIdIn(List<Long> ids, Pageable pageable);
+    List<User> findByIdGreaterThan(Long afterId, Pageable pageable);
+
+    List<User> findByIdInAndIdGreaterThan(List<Long> ids, Long afterId, Pageable pageable);
 }
\ No newline at end of file
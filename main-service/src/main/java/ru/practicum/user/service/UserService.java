@@ -1,15 +1,17 @@
 package ru.practicum.user.service;
 
 import ru.practicum.user.dto.NewUserRequestDto;
+import ru.practicum.pagination.CursorPage;
+import ru.practicum.pagination.PageParams;
 import ru.practicum.user.dto.UserDto;
 
 import java.util.List;
 
 public interface UserService {
 
-    List<UserDto> getUsers(List<Long> ids, int from, int size);
+    CursorPage<UserDto> getUsers(List<Long> ids, PageParams page);
 
-    List<UserDto> getUsers(int from, int size);
+    CursorPage<UserDto> getUsers(PageParams page);
 
     UserDto createUser(NewUserRequestDto newUserRequestDto);
 
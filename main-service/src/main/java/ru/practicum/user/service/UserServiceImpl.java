@@ -1,9 +1,12 @@
 package ru.practicum.user.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.pagination.CursorPage;
+import ru.practicum.pagination.PageCursor;
+import ru.practicum.pagination.PageParams;
 import ru.practicum.user.dto.NewUserRequestDto;
 import ru.practicum.user.dto.UserDto;
 import ru.practicum.user.repository.UserRepository;
@@ -18,16 +21,20 @@ import static ru.practicum.user.mapper.UserMapper.toUserDto;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final UserShortDtoCache userShortDtoCache;
 
     @Override
-    public List<UserDto> getUsers(List<Long> ids, int from, int size) {
-        return toUserDto(userRepository.findByIdIn(ids, PageRequest.of(from / size, size)));
+    @Transactional(readOnly = true)
+    public CursorPage<UserDto> getUsers(List<Long> ids, PageParams page) {
+        return page.toPage(toUserDto(userRepository.findByIdInAndIdGreaterThan(ids, page.afterId(),
+                page.toPageable(Sort.by("id")))), user -> PageCursor.afterId(user.getId()));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<UserDto> getUsers(int from, int size) {
-        return toUserDto(userRepository.findAll(PageRequest.of(from / size, size)));
+    public CursorPage<UserDto> getUsers(PageParams page) {
+        return page.toPage(toUserDto(userRepository.findByIdGreaterThan(page.afterId(), page.toPageable(Sort.by("id")))),
+                user -> PageCursor.afterId(user.getId()));
     }
 
     @Override
@@ -40,5 +47,6 @@ public class UserServiceImpl implements UserService {
     @Transactional
     public void deleteUser(Long id) {
         userRepository.deleteById(id);
+        userShortDtoCache.evict(id);
     }
 }
\ No newline at end of file
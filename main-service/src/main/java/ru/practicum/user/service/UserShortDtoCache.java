@@ -0,0 +1,47 @@
+package ru.practicum.user.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.user.dto.UserShortDto;
+import ru.practicum.user.mapper.UserMapper;
+import ru.practicum.user.model.User;
+import ru.practicum.user.repository.UserRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static ru.practicum.util.TransactionCallbacks.afterCommit;
+
+/**
+ * LRU-кэш кратких DTO инициаторов событий; промахи дочитываются одним запросом на всю страницу.
+ */
+@Component
+public class UserShortDtoCache {
+    private final UserRepository userRepository;
+    private final Cache<Long, UserShortDto> users;
+
+    public UserShortDtoCache(UserRepository userRepository, MeterRegistry meterRegistry,
+                             @Value("${user-cache.max-size:10000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "users.short");
+    }
+
+    public Map<Long, UserShortDto> getAll(Collection<Long> ids) {
+        return users.getAll(ids, missing -> userRepository.findAllById(List.copyOf(missing)).stream()
+                .collect(Collectors.toMap(User::getId, UserMapper::toUserShortDto, (a, b) -> a)));
+    }
+
+    public void evict(Long id) {
+        afterCommit(() -> users.invalidate(id));
+    }
+}
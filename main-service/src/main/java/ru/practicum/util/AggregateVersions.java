@@ -0,0 +1,74 @@
+package ru.practicum.util;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ru.practicum.util.TransactionCallbacks.afterCommit;
+
+/**
+ * Счётчики изменений агрегатов для ETag публичных GET-запросов. ETag строится из счётчиков без чтения данных,
+ * поэтому совпавший If-None-Match отвечает 304 до обращения к сервисам.
+ *
+ * <p>Счётчик увеличивается после коммита изменения. ETag, посчитанный до чтения данных, может оказаться
+ * старше тела ответа, что приводит лишь к лишнему 200, но не к устаревшему 304. Время запуска в ETag
+ * отличает значения счётчиков после перезапуска.
+ *
+ * <p>Версия событий не учитывает просмотры, поэтому два ответа с одним ETag, зависящим от событий, могут
+ * различаться числом просмотров. Такой ETag слабый (W/): он обещает равнозначность ответов, а не совпадение байтов.
+ */
+@Component
+public class AggregateVersions {
+    private final long epoch = System.currentTimeMillis();
+    private final Map<Aggregate, AtomicLong> versions = new EnumMap<>(Aggregate.class);
+
+    public AggregateVersions() {
+        for (Aggregate aggregate : Aggregate.values()) {
+            versions.put(aggregate, new AtomicLong());
+        }
+    }
+
+    public void bump(Aggregate aggregate) {
+        afterCommit(() -> versions.get(aggregate).incrementAndGet());
+    }
+
+    /**
+     * ETag ответа, содержимое которого зависит от перечисленных агрегатов.
+     */
+    public String etag(Aggregate... aggregates) {
+        return versionTag(aggregates).append('"').toString();
+    }
+
+    /**
+     * ETag ответа, который зависит ещё и от момента времени: например, список без rangeStart ищется от
+     * текущей минуты, и с её сменой прежний ETag перестаёт совпадать.
+     */
+    public String etag(LocalDateTime asOf, Aggregate... aggregates) {
+        return versionTag(aggregates).append('-')
+                .append(Long.toString(asOf.toEpochSecond(ZoneOffset.UTC), 36))
+                .append('"').toString();
+    }
+
+    private StringBuilder versionTag(Aggregate... aggregates) {
+        StringBuilder etag = new StringBuilder(Arrays.asList(aggregates).contains(Aggregate.EVENT) ? "W/\"" : "\"")
+                .append(Long.toString(epoch, 36));
+        for (Aggregate aggregate : aggregates) {
+            etag.append('-').append(versions.get(aggregate).get());
+        }
+        return etag;
+    }
+
+    public enum Aggregate {
+        CATEGORY,
+        COMPILATION,
+        /**
+         * События вместе с подтверждёнными заявками; просмотры в версию не входят.
+         */
+        EVENT
+    }
+}
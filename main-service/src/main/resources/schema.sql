@@ -1,3 +1,5 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
 CREATE TABLE IF NOT EXISTS users (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
     name VARCHAR(250) NOT NULL,
@@ -64,4 +66,14 @@ CREATE TABLE IF NOT EXISTS requests (
     CONSTRAINT pk_request PRIMARY KEY (id),
     CONSTRAINT fk_event FOREIGN KEY (event_id) REFERENCES events(id),
     CONSTRAINT fk_requester FOREIGN KEY (requester_id) REFERENCES users(id)
-);
\ No newline at end of file
+);
+
+CREATE INDEX IF NOT EXISTS idx_events_state_event_date ON events (state, event_date, id);
+
+CREATE INDEX IF NOT EXISTS idx_events_state_views ON events (state, views, id);
+
+CREATE INDEX IF NOT EXISTS idx_events_annotation_trgm ON events USING GIN (LOWER(annotation) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_events_description_trgm ON events USING GIN (LOWER(description) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_requests_event_status ON requests (event_id, status);
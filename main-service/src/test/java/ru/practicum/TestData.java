@@ -0,0 +1,64 @@
+package ru.practicum;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Заполняет базу напрямую через SQL: тестам нужны тысячи строк и события в прошлом, которые сервисы создать не дают.
+ */
+public class TestData {
+    private static final AtomicLong SEQUENCE = new AtomicLong(System.nanoTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TestData(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Очищает таблицы, не сбрасывая identity: кэши сервиса по id не увидят чужих строк под старыми номерами.
+     */
+    public void clean() {
+        jdbcTemplate.execute("TRUNCATE requests, event_compilation, compilations, events, locations, categories, users");
+    }
+
+    public long user() {
+        long n = SEQUENCE.incrementAndGet();
+        return insert("INSERT INTO users (name, email) VALUES (?, ?) RETURNING id", "user" + n, "user" + n + "@test.ru");
+    }
+
+    public long category() {
+        return insert("INSERT INTO categories (name) VALUES (?) RETURNING id", "category" + SEQUENCE.incrementAndGet());
+    }
+
+    public long event(long initiatorId, long categoryId, String state, LocalDateTime eventDate, int participantLimit,
+                      boolean requestModeration, long views) {
+        long locationId = insert("INSERT INTO locations (lat, lon) VALUES (55.75, 37.62) RETURNING id");
+        return insert("""
+                        INSERT INTO events (title, annotation, category_id, description, event_date, location_id, paid,
+                            participant_limit, request_moderation, created_on, published_on, initiator_id, state, views)
+                        VALUES (?, ?, ?, ?, ?, ?, FALSE, ?, ?, ?, ?, ?, ?, ?) RETURNING id
+                        """,
+                "Событие " + SEQUENCE.incrementAndGet(), "Аннотация события для тестов", categoryId,
+                "Описание события для тестов", Timestamp.valueOf(eventDate), locationId, participantLimit,
+                requestModeration, Timestamp.valueOf(LocalDateTime.now().minusDays(1)),
+                "PUBLISHED".equals(state) ? Timestamp.valueOf(LocalDateTime.now().minusHours(1)) : null,
+                initiatorId, state, views);
+    }
+
+    public long publishedEvent(long initiatorId, long categoryId) {
+        return event(initiatorId, categoryId, "PUBLISHED", LocalDateTime.now().plusDays(7), 0, false, 0);
+    }
+
+    public long request(long eventId, long requesterId, String status) {
+        return insert("INSERT INTO requests (event_id, requester_id, status, created) VALUES (?, ?, ?, ?) RETURNING id",
+                eventId, requesterId, status, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private long insert(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
+    }
+}
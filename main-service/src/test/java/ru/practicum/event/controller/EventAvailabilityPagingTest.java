@@ -0,0 +1,106 @@
+package ru.practicum.event.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.TestData;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * onlyAvailable фильтруется до разбиения на страницы: каждая страница, кроме последней, полная, а страницы подряд
+ * дают все доступные события в порядке сортировки без пропусков и повторов.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class EventAvailabilityPagingTest extends PostgresIntegrationTest {
+    private static final int EVENTS = 15;
+    private static final int PAGE_SIZE = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Seeded> available = new ArrayList<>();
+    private long category;
+
+    @BeforeEach
+    void setUp() {
+        TestData data = new TestData(jdbcTemplate);
+        data.clean();
+        long initiator = data.user();
+        category = data.category();
+        available.clear();
+        LocalDateTime base = LocalDateTime.now().plusDays(7);
+        for (int i = 0; i < EVENTS; i++) {
+            LocalDateTime eventDate = base.plusHours((i * 7L) % EVENTS);
+            long views = (i * 11L) % 5;
+            int limit = i % 3 == 0 ? 0 : 1;
+            long event = data.event(initiator, category, "PUBLISHED", eventDate, limit, false, views);
+            if (i % 3 == 1) {
+                data.request(event, data.user(), "CONFIRMED");
+            } else {
+                available.add(new Seeded(event, eventDate, views));
+            }
+        }
+    }
+
+    @Test
+    void availablePagesAreFullAndOrderedByEventDate() throws Exception {
+        assertPages("EVENT_DATE", Comparator.comparing(Seeded::eventDate).thenComparing(Seeded::id));
+    }
+
+    @Test
+    void availablePagesAreFullAndOrderedByViews() throws Exception {
+        assertPages("VIEWS", Comparator.comparingLong(Seeded::views).thenComparing(Seeded::id));
+    }
+
+    private void assertPages(String sort, Comparator<Seeded> order) throws Exception {
+        List<Long> expected = available.stream().sorted(order).map(Seeded::id).toList();
+        List<Long> actual = new ArrayList<>();
+        for (int from = 0; from < expected.size(); from += PAGE_SIZE) {
+            List<Long> page = page(sort, from);
+            assertThat(page).hasSize(Math.min(PAGE_SIZE, expected.size() - from));
+            actual.addAll(page);
+        }
+
+        assertThat(actual).isEqualTo(expected);
+        assertThat(page(sort, expected.size())).isEmpty();
+    }
+
+    private List<Long> page(String sort, int from) throws Exception {
+        String body = mockMvc.perform(get("/events")
+                        .param("categories", String.valueOf(category))
+                        .param("onlyAvailable", "true")
+                        .param("sort", sort)
+                        .param("from", String.valueOf(from))
+                        .param("size", String.valueOf(PAGE_SIZE)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode event : objectMapper.readTree(body)) {
+            ids.add(event.get("id").asLong());
+        }
+        return ids;
+    }
+
+    private record Seeded(long id, LocalDateTime eventDate, long views) {
+    }
+}
@@ -0,0 +1,78 @@
+package ru.practicum.event.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.TestData;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * ETag карточки общий для всех событий, поэтому 304 допустим только для существующего опубликованного события,
+ * а новые просмотры не должны его менять. Тело при этом меняется, поэтому ETag слабый.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class EventEtagTest extends PostgresIntegrationTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestData data;
+    private long initiator;
+    private long category;
+
+    @BeforeEach
+    void setUp() {
+        data = new TestData(jdbcTemplate);
+        data.clean();
+        initiator = data.user();
+        category = data.category();
+    }
+
+    @Test
+    void newViewerKeepsWeakEtag() throws Exception {
+        long event = data.publishedEvent(initiator, category);
+        String etag = etagOf(event, "10.0.0.1");
+
+        assertThat(etag).startsWith("W/\"");
+
+        mockMvc.perform(get("/events/{id}", event).header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .with(request -> remoteAddr(request, "10.0.0.2")))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void missingOrUnpublishedEventIsNotFoundDespiteMatchingEtag() throws Exception {
+        String etag = etagOf(data.publishedEvent(initiator, category), "10.0.0.1");
+        long pending = data.event(initiator, category, "PENDING", LocalDateTime.now().plusDays(7), 0, false, 0);
+
+        mockMvc.perform(get("/events/{id}", pending).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/events/{id}", Long.MAX_VALUE).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotFound());
+    }
+
+    private String etagOf(long event, String ip) throws Exception {
+        return mockMvc.perform(get("/events/{id}", event).with(request -> remoteAddr(request, ip)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private static MockHttpServletRequest remoteAddr(MockHttpServletRequest request, String ip) {
+        request.setRemoteAddr(ip);
+        return request;
+    }
+}
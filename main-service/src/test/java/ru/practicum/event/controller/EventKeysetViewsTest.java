@@ -0,0 +1,107 @@
+package ru.practicum.event.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.TestData;
+import ru.practicum.event.service.EventViewCounter;
+import ru.practicum.pagination.CursorPage;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проход по страницам с сортировкой VIEWS, пока сохраняются новые просмотры. Каждая страница запрашивается дважды:
+ * второй раз уже после сброса просмотров её последнего события, и курсор берётся из второго ответа.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class EventKeysetViewsTest extends PostgresIntegrationTest {
+    private static final int EVENTS = 12;
+    private static final int PAGE_SIZE = 4;
+    private static final int NEW_VIEWERS = 25;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EventViewCounter eventViewCounter;
+
+    private final List<Long> events = new ArrayList<>();
+    private long category;
+    private String rangeStart;
+
+    @BeforeEach
+    void setUp() {
+        TestData data = new TestData(jdbcTemplate);
+        data.clean();
+        long initiator = data.user();
+        category = data.category();
+        rangeStart = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        events.clear();
+        for (int i = 0; i < EVENTS; i++) {
+            events.add(data.event(initiator, category, "PUBLISHED", LocalDateTime.now().plusDays(7), 0, false,
+                    i * 10L));
+        }
+    }
+
+    @Test
+    void flushedViewsDoNotSkipEvents() throws Exception {
+        Set<Long> seen = new HashSet<>();
+        String cursor = "";
+        int viewer = 0;
+        for (int pages = 0; cursor != null && pages <= EVENTS; pages++) {
+            List<Long> ids = idsOf(page(cursor));
+            if (!ids.isEmpty()) {
+                long last = ids.get(ids.size() - 1);
+                for (int i = 0; i < NEW_VIEWERS; i++) {
+                    eventViewCounter.registerView(last, "10.1.0." + viewer++);
+                }
+                eventViewCounter.flush();
+            }
+            MockHttpServletResponse repeated = page(cursor);
+            seen.addAll(idsOf(repeated));
+            cursor = repeated.getHeader(CursorPage.NEXT_CURSOR_HEADER);
+        }
+
+        assertThat(seen).containsExactlyInAnyOrderElementsOf(events);
+    }
+
+    private MockHttpServletResponse page(String cursor) throws Exception {
+        return mockMvc.perform(get("/events")
+                        .param("categories", String.valueOf(category))
+                        .param("rangeStart", rangeStart)
+                        .param("sort", "VIEWS")
+                        .param("size", String.valueOf(PAGE_SIZE))
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+    }
+
+    private List<Long> idsOf(MockHttpServletResponse response) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode event : objectMapper.readTree(response.getContentAsString())) {
+            ids.add(event.get("id").asLong());
+        }
+        return ids;
+    }
+}
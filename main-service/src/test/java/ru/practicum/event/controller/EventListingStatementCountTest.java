@@ -0,0 +1,122 @@
+package ru.practicum.event.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.TestData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Число SQL-запросов страницы событий не должно расти с её размером: связи грузятся пачками, а не по событию.
+ * Запросы идут через MockMvc, чтобы ленивые связи загружались в открытой на время запроса сессии, как в работе.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class EventListingStatementCountTest extends PostgresIntegrationTest {
+    /**
+     * События, локации, инициаторы, категории и подтверждённые заявки.
+     */
+    private static final int MAX_STATEMENTS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestData data;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        data = new TestData(jdbcTemplate);
+        data.clean();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void adminPageIssuesSameStatementsForAnyPageSize() throws Exception {
+        Group small = seedGroup(5);
+        Group large = seedGroup(50);
+        warmUpDictionaries();
+
+        long smallStatements = countStatements(get("/admin/events").param("users", join(small.initiators()))
+                .param("size", "5"), 5);
+        long largeStatements = countStatements(get("/admin/events").param("users", join(large.initiators()))
+                .param("size", "50"), 50);
+
+        assertThat(largeStatements).isEqualTo(smallStatements).isLessThanOrEqualTo(MAX_STATEMENTS);
+    }
+
+    @Test
+    void publicPageIssuesSameStatementsForAnyPageSize() throws Exception {
+        Group small = seedGroup(5);
+        Group large = seedGroup(50);
+        warmUpDictionaries();
+
+        long smallStatements = countStatements(get("/events").param("categories", join(small.categories()))
+                .param("size", "5"), 5);
+        long largeStatements = countStatements(get("/events").param("categories", join(large.categories()))
+                .param("size", "50"), 50);
+
+        assertThat(largeStatements).isEqualTo(smallStatements).isLessThanOrEqualTo(MAX_STATEMENTS);
+    }
+
+    /**
+     * События со своими инициатором и категорией и одной подтверждённой заявкой: все связи страницы различны,
+     * и ни одна не попадает в кэш из другой группы.
+     */
+    private Group seedGroup(int size) {
+        List<Long> initiators = new ArrayList<>();
+        List<Long> categories = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            long initiator = data.user();
+            long category = data.category();
+            long event = data.publishedEvent(initiator, category);
+            data.request(event, data.user(), "CONFIRMED");
+            initiators.add(initiator);
+            categories.add(category);
+        }
+        return new Group(initiators, categories);
+    }
+
+    /**
+     * Справочник категорий при первом обращении читает все категории; это разовая загрузка, а не часть страницы.
+     */
+    private void warmUpDictionaries() throws Exception {
+        mockMvc.perform(get("/admin/events").param("users", "0")).andExpect(status().isOk());
+    }
+
+    private long countStatements(MockHttpServletRequestBuilder request, int expectedSize) throws Exception {
+        statistics.clear();
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(expectedSize));
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static String join(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    private record Group(List<Long> initiators, List<Long> categories) {
+    }
+}
@@ -0,0 +1,155 @@
+package ru.practicum.event.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.TestData;
+import ru.practicum.event.model.Event;
+import ru.practicum.pagination.OffsetPageRequest;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Страницы GET /events с onlyAvailable на миллионе опубликованных событий: фильтр по лимиту участников и сортировка
+ * выполняются в SQL по индексам idx_events_state_event_date, idx_events_state_views и idx_requests_event_status.
+ *
+ * <p>Каждое четвёртое событие заполнено подтверждёнными заявками, каждое четвёртое заполнено наполовину, остальные
+ * без лимита. Проверяется план запроса, время страниц выводится в лог.
+ */
+@Slf4j
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EventAvailabilityBenchmarkTest extends PostgresIntegrationTest {
+    private static final int EVENTS = 1_000_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int[] DEPTHS = {0, 1_000, 10_000};
+    private static final int RUNS = 15;
+
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private LocalDateTime rangeStart;
+
+    @BeforeAll
+    void seed() {
+        TestData data = new TestData(jdbcTemplate);
+        data.clean();
+        long location = jdbcTemplate.queryForObject(
+                "INSERT INTO locations (lat, lon) VALUES (55.75, 37.62) RETURNING id", Long.class);
+        long firstRequester = data.user();
+        long secondRequester = data.user();
+        rangeStart = LocalDateTime.now();
+        jdbcTemplate.update("""
+                INSERT INTO events (title, annotation, category_id, description, event_date, location_id,
+                    participant_limit, request_moderation, created_on, published_on, initiator_id, state, views)
+                SELECT 'Событие ' || i, 'Аннотация события ' || i, ?, 'Описание события ' || i,
+                    CAST(? AS TIMESTAMP) + i * INTERVAL '1 minute', ?, CASE WHEN i % 4 < 2 THEN 2 ELSE 0 END,
+                    FALSE, ?, ?, ?, 'PUBLISHED', (i * 7919) % 5000
+                FROM generate_series(1, ?) AS i
+                """, data.category(), Timestamp.valueOf(rangeStart.plusHours(3)), location,
+                Timestamp.valueOf(rangeStart), Timestamp.valueOf(rangeStart), data.user(), EVENTS);
+        jdbcTemplate.update("""
+                INSERT INTO requests (event_id, requester_id, status, created)
+                SELECT e.id, r.requester, 'CONFIRMED', CAST(? AS TIMESTAMP)
+                FROM events e
+                CROSS JOIN (VALUES (CAST(? AS BIGINT)), (CAST(? AS BIGINT))) AS r(requester)
+                WHERE e.participant_limit > 0 AND (e.id % 2 = 0 OR r.requester = ?)
+                """, Timestamp.valueOf(rangeStart), firstRequester, secondRequester, firstRequester);
+        jdbcTemplate.execute("ANALYZE events");
+        jdbcTemplate.execute("ANALYZE requests");
+    }
+
+    @Test
+    void availablePageWalksSortIndexWithoutSorting() throws Exception {
+        for (String order : List.of("event_date", "views")) {
+            JsonNode plan = plan(EventRepository.PUBLISHED_EVENTS_FILTER + "AND e.id > 0 ORDER BY e." + order
+                    + ", e.id LIMIT " + PAGE_SIZE);
+            List<JsonNode> nodes = new ArrayList<>();
+            collect(plan, nodes);
+
+            assertThat(nodes).as("план для %s", order)
+                    .noneMatch(node -> node.path("Node Type").asText().equals("Sort"))
+                    .noneMatch(node -> node.path("Node Type").asText().equals("Seq Scan"))
+                    .anyMatch(node -> node.path("Index Name").asText().equals("idx_events_state_" + order))
+                    .anyMatch(node -> node.path("Index Name").asText().equals("idx_requests_event_status"));
+            long eventRows = nodes.stream()
+                    .filter(node -> "events".equals(node.path("Relation Name").asText()))
+                    .mapToLong(node -> node.path("Actual Rows").asLong() + node.path("Rows Removed by Filter").asLong())
+                    .max().orElseThrow();
+            assertThat(eventRows).as("строк events для %s", order).isLessThanOrEqualTo(2L * PAGE_SIZE);
+        }
+    }
+
+    @Test
+    void pageLatencyByDepth() {
+        StringBuilder report = new StringBuilder(String.format("%n%10s %12s %12s %12s %12s%n", "depth",
+                "all date", "avail date", "all views", "avail views"));
+        for (int depth : DEPTHS) {
+            report.append(String.format("%10d %12.2f %12.2f %12.2f %12.2f%n", depth,
+                    medianMillis(depth, false, "event_date"), medianMillis(depth, true, "event_date"),
+                    medianMillis(depth, false, "views"), medianMillis(depth, true, "views")));
+        }
+        log.info("Медиана времени страницы из {} событий на {} событиях, мс:{}", PAGE_SIZE, EVENTS, report);
+    }
+
+    private double medianMillis(int depth, boolean onlyAvailable, String order) {
+        for (int i = 0; i < 3; i++) {
+            page(depth, onlyAvailable, order);
+        }
+        long[] nanos = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            assertThat(page(depth, onlyAvailable, order)).hasSize(PAGE_SIZE);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[RUNS / 2] / 1_000_000.0;
+    }
+
+    private List<Event> page(int depth, boolean onlyAvailable, String order) {
+        return eventRepository.findPublishedEvents(null, null, null, rangeStart, null, onlyAvailable, 0,
+                OffsetPageRequest.of(depth, PAGE_SIZE, Sort.by(order, "id")));
+    }
+
+    private JsonNode plan(String sql) throws Exception {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("text", null)
+                .addValue("categories", null)
+                .addValue("paid", null)
+                .addValue("rangeStart", Timestamp.valueOf(rangeStart))
+                .addValue("rangeEnd", null)
+                .addValue("onlyAvailable", true);
+        String plan = namedParameterJdbcTemplate.queryForObject("EXPLAIN (ANALYZE, FORMAT JSON) " + sql, params,
+                String.class);
+        return objectMapper.readTree(plan).get(0).get("Plan");
+    }
+
+    private static void collect(JsonNode node, List<JsonNode> nodes) {
+        nodes.add(node);
+        for (JsonNode child : node.path("Plans")) {
+            collect(child, nodes);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ru.practicum.event.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.TestData;
+import ru.practicum.event.model.Event;
+import ru.practicum.pagination.OffsetPageRequest;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнивает offset- и keyset-страницы опубликованных событий на одних и тех же данных.
+ *
+ * <p>Проверяется число строк, прочитанных из events по EXPLAIN ANALYZE: оно не зависит от машины, в отличие
+ * от времени. Медианы времени страниц на разной глубине выводятся в лог для сравнения.
+ */
+@Slf4j
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EventPaginationBenchmarkTest extends PostgresIntegrationTest {
+    private static final int EVENTS = 200_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int[] DEPTHS = {0, 1_000, 10_000, 50_000, 150_000};
+    private static final int RUNS = 15;
+
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private LocalDateTime rangeStart;
+
+    @BeforeAll
+    void seed() {
+        TestData data = new TestData(jdbcTemplate);
+        data.clean();
+        long location = jdbcTemplate.queryForObject(
+                "INSERT INTO locations (lat, lon) VALUES (55.75, 37.62) RETURNING id", Long.class);
+        rangeStart = LocalDateTime.now();
+        jdbcTemplate.update("""
+                INSERT INTO events (title, annotation, category_id, description, event_date, location_id,
+                    participant_limit, request_moderation, created_on, published_on, initiator_id, state, views)
+                SELECT 'Событие ' || i, 'Аннотация события ' || i, ?, 'Описание события ' || i,
+                    CAST(? AS TIMESTAMP) + i * INTERVAL '1 minute', ?, 0, FALSE, ?, ?, ?, 'PUBLISHED',
+                    (i * 7919) % 5000
+                FROM generate_series(1, ?) AS i
+                """, data.category(), Timestamp.valueOf(rangeStart.plusHours(3)), location,
+                Timestamp.valueOf(rangeStart), Timestamp.valueOf(rangeStart), data.user(), EVENTS);
+        jdbcTemplate.execute("ANALYZE events");
+    }
+
+    @Test
+    void keysetPageReadsOnlyItsRowsAtAnyDepth() throws Exception {
+        int depth = DEPTHS[DEPTHS.length - 1];
+        Event last = eventAt(depth - 1, "event_date, id");
+
+        long offsetRows = scannedRows(EventRepository.PUBLISHED_EVENTS_FILTER
+                + "ORDER BY event_date, id LIMIT " + PAGE_SIZE + " OFFSET " + depth, filter());
+        long keysetRows = scannedRows(EventRepository.PUBLISHED_EVENTS_FILTER
+                        + "AND (e.event_date, e.id) > (:afterDate, :afterId) "
+                        + "ORDER BY event_date, id LIMIT " + PAGE_SIZE,
+                filter().addValue("afterDate", Timestamp.valueOf(last.getEventDate()))
+                        .addValue("afterId", last.getId()));
+
+        assertThat(offsetRows).isGreaterThanOrEqualTo(depth + PAGE_SIZE);
+        assertThat(keysetRows).isLessThanOrEqualTo(PAGE_SIZE);
+    }
+
+    @Test
+    void keysetAndOffsetReturnSamePages() {
+        for (int depth : DEPTHS) {
+            Event last = eventAt(depth - 1, "views, id");
+            List<Event> offset = offsetPage(depth, Sort.by("views", "id"));
+            List<Event> keyset = depth == 0 ? offset : eventRepository.findPublishedEventsAfterViews(null, null, null,
+                    rangeStart, null, false, last.getViews(), last.getId(), keysetPageable(Sort.by("views", "id")));
+
+            assertThat(keyset).extracting(Event::getId).isEqualTo(offset.stream().map(Event::getId).toList());
+        }
+    }
+
+    @Test
+    void pageLatencyByDepth() {
+        StringBuilder report = new StringBuilder(String.format("%n%10s %12s %12s %12s %12s%n", "depth",
+                "offset date", "keyset date", "offset views", "keyset views"));
+        for (int depth : DEPTHS) {
+            Event byDate = depth == 0 ? null : eventAt(depth - 1, "event_date, id");
+            Event byViews = depth == 0 ? null : eventAt(depth - 1, "views, id");
+            double offsetDate = medianMillis(() -> offsetPage(depth, Sort.by("event_date", "id")));
+            double keysetDate = medianMillis(() -> eventRepository.findPublishedEventsAfterDate(null, null, null,
+                    rangeStart, null, false, byDate != null ? byDate.getEventDate() : rangeStart,
+                    byDate != null ? byDate.getId() : 0, keysetPageable(Sort.by("event_date", "id"))));
+            double offsetViews = medianMillis(() -> offsetPage(depth, Sort.by("views", "id")));
+            double keysetViews = medianMillis(() -> eventRepository.findPublishedEventsAfterViews(null, null, null,
+                    rangeStart, null, false, byViews != null ? byViews.getViews() : -1,
+                    byViews != null ? byViews.getId() : 0, keysetPageable(Sort.by("views", "id"))));
+            report.append(String.format("%10d %12.2f %12.2f %12.2f %12.2f%n", depth, offsetDate, keysetDate,
+                    offsetViews, keysetViews));
+        }
+        log.info("Медиана времени страницы из {} событий на {} событиях, мс:{}", PAGE_SIZE, EVENTS, report);
+    }
+
+    private List<Event> offsetPage(int depth, Sort sort) {
+        return eventRepository.findPublishedEvents(null, null, null, rangeStart, null, false, 0,
+                OffsetPageRequest.of(depth, PAGE_SIZE, sort));
+    }
+
+    private static PageRequest keysetPageable(Sort sort) {
+        return PageRequest.of(0, PAGE_SIZE, sort);
+    }
+
+    private Event eventAt(int position, String order) {
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM events ORDER BY " + order + " OFFSET ? LIMIT 1",
+                Long.class, Math.max(position, 0));
+        return eventRepository.findById(id).orElseThrow();
+    }
+
+    private MapSqlParameterSource filter() {
+        return new MapSqlParameterSource()
+                .addValue("text", null)
+                .addValue("categories", null)
+                .addValue("paid", null)
+                .addValue("rangeStart", Timestamp.valueOf(rangeStart))
+                .addValue("rangeEnd", null)
+                .addValue("onlyAvailable", false);
+    }
+
+    /**
+     * Наибольшее число строк, прочитанных одним узлом плана по таблице events.
+     */
+    private long scannedRows(String sql, MapSqlParameterSource params) throws Exception {
+        String plan = namedParameterJdbcTemplate.queryForObject("EXPLAIN (ANALYZE, FORMAT JSON) " + sql, params,
+                String.class);
+        return maxEventRows(objectMapper.readTree(plan).get(0).get("Plan"));
+    }
+
+    private static long maxEventRows(JsonNode node) {
+        long rows = "events".equals(node.path("Relation Name").asText()) ? node.path("Actual Rows").asLong() : 0;
+        for (JsonNode child : node.path("Plans")) {
+            rows = Math.max(rows, maxEventRows(child));
+        }
+        return rows;
+    }
+
+    private static double medianMillis(Supplier<List<Event>> page) {
+        for (int i = 0; i < 3; i++) {
+            page.get();
+        }
+        long[] nanos = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            assertThat(page.get()).hasSize(PAGE_SIZE);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[RUNS / 2] / 1_000_000.0;
+    }
+}
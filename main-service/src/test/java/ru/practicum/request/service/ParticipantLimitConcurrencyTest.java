@@ -0,0 +1,125 @@
+package ru.practicum.request.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.TestData;
+import ru.practicum.exceptions.ForbiddenException;
+import ru.practicum.request.dto.EventRequestStatusUpdateRequestDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Одновременные заявки и подтверждения не должны занимать больше мест, чем participantLimit.
+ */
+@SpringBootTest
+class ParticipantLimitConcurrencyTest extends PostgresIntegrationTest {
+    private static final int LIMIT = 5;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private RequestService requestService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestData data;
+
+    @BeforeEach
+    void setUp() {
+        data = new TestData(jdbcTemplate);
+        data.clean();
+    }
+
+    @RepeatedTest(3)
+    void concurrentSignUpsWithoutModerationDoNotExceedLimit() throws Exception {
+        long event = data.event(data.user(), data.category(), "PUBLISHED", LocalDateTime.now().plusDays(1), LIMIT,
+                false, 0);
+        List<Callable<Boolean>> signUps = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            long user = data.user();
+            signUps.add(() -> requestService.createParticipationRequest(user, event) != null);
+        }
+
+        List<Future<Boolean>> results = runTogether(signUps);
+
+        assertThat(succeeded(results)).isEqualTo(LIMIT);
+        assertThat(confirmed(event)).isEqualTo(LIMIT);
+    }
+
+    @RepeatedTest(3)
+    void concurrentConfirmationsDoNotExceedLimit() throws Exception {
+        long initiator = data.user();
+        long event = data.event(initiator, data.category(), "PUBLISHED", LocalDateTime.now().plusDays(1), LIMIT,
+                true, 0);
+        List<Callable<Boolean>> confirmations = new ArrayList<>();
+        for (int batch = 0; batch < 8; batch++) {
+            List<Long> requestIds = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                requestIds.add(data.request(event, data.user(), "PENDING"));
+            }
+            EventRequestStatusUpdateRequestDto dto = new EventRequestStatusUpdateRequestDto(requestIds, "CONFIRMED");
+            confirmations.add(() -> !requestService.changeParticipationRequestsStatus(initiator, event, dto)
+                    .getConfirmedRequests().isEmpty());
+        }
+
+        runTogether(confirmations);
+
+        assertThat(confirmed(event)).isEqualTo(LIMIT);
+    }
+
+    /**
+     * Запускает задачи одновременно; отказ по лимиту считается неуспехом, остальные ошибки пробрасываются.
+     */
+    private List<Future<Boolean>> runTogether(List<Callable<Boolean>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (Callable<Boolean> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        return task.call();
+                    } catch (ForbiddenException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            return futures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long succeeded(List<Future<Boolean>> results) throws Exception {
+        long count = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long confirmed(long eventId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM requests WHERE event_id = ? AND status = 'CONFIRMED'",
+                Long.class, eventId);
+    }
+}
@@ -0,0 +1,183 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Буферизует hits в ограниченной очереди и отправляет их пачками из фонового потока. Пачки, которые не удалось
+ * отправить, и hits, оставшиеся в очереди при остановке, передаются в журнал, если он включён.
+ */
+@Slf4j
+public class AsyncHitSender {
+    private final StatClientProperties.Async properties;
+    private final BlockingQueue<HitDto> queue;
+    private final Consumer<List<HitDto>> batchSender;
+    private final HitSpool spool;
+    private final Thread worker;
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong spooled = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    /**
+     * @param spool         журнал для неотправленных пачек или null, если они отбрасываются
+     * @param virtualThread запускать отправку в виртуальном потоке, как и обработку запросов
+     *                      при spring.threads.virtual.enabled
+     */
+    public AsyncHitSender(StatClientProperties.Async properties, Consumer<List<HitDto>> batchSender,
+                          HitSpool spool, MeterRegistry meterRegistry, boolean virtualThread) {
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.batchSender = batchSender;
+        this.spool = spool;
+        Thread.Builder threadBuilder = virtualThread ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        this.worker = threadBuilder.name("stat-hit-sender").unstarted(this::run);
+
+        registerMetrics(meterRegistry);
+        worker.start();
+    }
+
+    public boolean offer(HitDto hitDto) {
+        if (properties.getOverflowPolicy() == HitOverflowPolicy.BLOCK) {
+            try {
+                if (queue.offer(hitDto, properties.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                    queued.incrementAndGet();
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        while (!queue.offer(hitDto)) {
+            if (queue.poll() != null) {
+                dropped.incrementAndGet();
+            }
+        }
+        queued.incrementAndGet();
+        return true;
+    }
+
+    public void shutdown() {
+        running = false;
+        try {
+            worker.join(properties.getFlushInterval().toMillis() * 2 + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (queue.isEmpty()) {
+            return;
+        }
+        List<HitDto> rest = new ArrayList<>(queue.size());
+        queue.drainTo(rest);
+        if (spool != null) {
+            log.info("Остановка отправителя hits: {} hits записано в журнал", rest.size());
+            spool.append(rest);
+            spooled.addAndGet(rest.size());
+        } else {
+            log.warn("Остановка отправителя hits: {} hits не отправлено", rest.size());
+        }
+    }
+
+    public long getQueued() {
+        return queued.get();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getRetried() {
+        return retried.get();
+    }
+
+    public long getSpooled() {
+        return spooled.get();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                HitDto first = queue.poll(properties.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<HitDto> batch = new ArrayList<>(properties.getBatchSize());
+                batch.add(first);
+                queue.drainTo(batch, properties.getBatchSize() - 1);
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void send(List<HitDto> batch) throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                batchSender.accept(batch);
+                sent.addAndGet(batch.size());
+                return;
+            } catch (Exception e) {
+                // При разомкнутой цепи повторы бессмысленны: пачка сразу уходит в журнал.
+                // Пачку, отклонённую с 4xx, повторная отправка не исправит, её в журнал не пишем
+                boolean unavailable = e instanceof StatServerUnavailableException;
+                if (spool != null && !(e instanceof HttpClientErrorException)
+                        && (unavailable || attempt >= properties.getMaxRetries())) {
+                    spool.append(batch);
+                    spooled.addAndGet(batch.size());
+                    log.warn("Не удалось отправить {} hits в StatServer, пачка записана в журнал", batch.size());
+                    return;
+                }
+                if (attempt >= properties.getMaxRetries()) {
+                    dropped.addAndGet(batch.size());
+                    log.error("Не удалось отправить {} hits в StatServer после {} попыток", batch.size(), attempt + 1, e);
+                    return;
+                }
+                retried.addAndGet(batch.size());
+                log.warn("Ошибка при отправке {} hits в StatServer, повтор #{}", batch.size(), attempt + 1);
+                Thread.sleep(properties.getRetryBackoff().toMillis() * (attempt + 1));
+            }
+        }
+    }
+
+    private void registerMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("stat.client.hits", queued, AtomicLong::get)
+                .tag("result", "queued").register(meterRegistry);
+        FunctionCounter.builder("stat.client.hits", sent, AtomicLong::get)
+                .tag("result", "sent").register(meterRegistry);
+        FunctionCounter.builder("stat.client.hits", dropped, AtomicLong::get)
+                .tag("result", "dropped").register(meterRegistry);
+        FunctionCounter.builder("stat.client.hits", retried, AtomicLong::get)
+                .tag("result", "retried").register(meterRegistry);
+        FunctionCounter.builder("stat.client.hits", spooled, AtomicLong::get)
+                .tag("result", "spooled").register(meterRegistry);
+        Gauge.builder("stat.client.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.practicum;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Собирает {@link HitBatchDto} из hits: app и uri складываются в словари, время переводится в миллисекунды.
+ * Hits одной пачки обычно приходятся на несколько секунд, поэтому каждая строка времени разбирается один раз.
+ */
+public class HitBatchEncoder {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private HitBatchEncoder() {
+
+    }
+
+    public static HitBatchDto encode(List<HitDto> hits) {
+        Map<String, Integer> apps = new HashMap<>();
+        Map<String, Integer> uris = new HashMap<>();
+        Map<String, Long> timestamps = new HashMap<>();
+        int[] appIndexes = new int[hits.size()];
+        int[] uriIndexes = new int[hits.size()];
+        List<String> ips = new ArrayList<>(hits.size());
+        long[] millis = new long[hits.size()];
+
+        for (int i = 0; i < hits.size(); i++) {
+            HitDto hit = hits.get(i);
+            appIndexes[i] = apps.computeIfAbsent(hit.getApp(), app -> apps.size());
+            uriIndexes[i] = uris.computeIfAbsent(hit.getUri(), uri -> uris.size());
+            ips.add(hit.getIp());
+            millis[i] = timestamps.computeIfAbsent(hit.getTimestamp(), HitBatchEncoder::toEpochMillis);
+        }
+
+        return HitBatchDto.builder()
+                .apps(toDictionary(apps))
+                .uris(toDictionary(uris))
+                .appIndexes(appIndexes)
+                .uriIndexes(uriIndexes)
+                .ips(ips)
+                .timestamps(millis)
+                .build();
+    }
+
+    private static long toEpochMillis(String timestamp) {
+        return LocalDateTime.parse(timestamp, FORMATTER).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static List<String> toDictionary(Map<String, Integer> indexes) {
+        String[] values = new String[indexes.size()];
+        indexes.forEach((value, index) -> values[index] = value);
+        return Arrays.asList(values);
+    }
+}
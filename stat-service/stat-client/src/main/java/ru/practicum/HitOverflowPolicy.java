@@ -0,0 +1,6 @@
+package ru.practicum;
+
+public enum HitOverflowPolicy {
+    DROP_OLDEST,
+    BLOCK
+}
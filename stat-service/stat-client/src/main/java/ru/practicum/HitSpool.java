@@ -0,0 +1,540 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал hits, которые не удалось отправить в StatServer. Hits дописываются в сегменты hits-N.spool
+ * записями [длина][CRC32][данные] и отправляются повторно пачками из фонового потока, когда сервер снова доступен.
+ *
+ * <p>Запись не вызывает fsync: данные попадают в page cache, а force() выполняет поток повторной отправки раз
+ * в replay-interval, не удерживая блокировку записи. При ротации под блокировкой только подменяется канал, а
+ * сброс на диск и закрытие заполненного сегмента выполняет тот же поток. Перед отправкой активный сегмент
+ * закрывается и начинается новый, поэтому читаются только закрытые сегменты. Позиция отправленной части сегмента
+ * сохраняется в hits-N.offset после каждой пачки; при падении между отправкой пачки и сохранением позиции пачка
+ * будет отправлена повторно.
+ *
+ * <p>Оборванная запись в конце сегмента считается его концом. После повреждённой записи чтение продолжается со
+ * следующей записи с верной CRC, а сегмент после отправки не удаляется, а переименовывается в hits-N.corrupt,
+ * чтобы пропущенные байты можно было разобрать вручную.
+ *
+ * <p>Отправленный сегмент удаляется после своего hits-N.offset, а при запуске удаляются offset-файлы без
+ * сегмента: номера сегментов в пустом журнале начинаются заново, и чужая позиция не должна достаться новому
+ * сегменту с тем же номером.
+ */
+@Slf4j
+public class HitSpool {
+    private static final String SEGMENT_PREFIX = "hits-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String OFFSET_SUFFIX = ".offset";
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+
+    private final StatClientProperties.Spool properties;
+    private final Path directory;
+    private final Consumer<List<HitDto>> batchSender;
+    private final Thread worker;
+    private final Object lock = new Object();
+    private final Queue<FileChannel> sealedChannels = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong spooled = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong corrupted = new AtomicLong();
+    private final AtomicLong size = new AtomicLong();
+
+    private FileChannel active;
+    private long activeSequence;
+
+    private volatile boolean running = true;
+
+    public HitSpool(StatClientProperties.Spool properties, Consumer<List<HitDto>> batchSender,
+                    MeterRegistry meterRegistry, boolean virtualThread) {
+        this.properties = properties;
+        this.directory = Path.of(properties.getDirectory());
+        this.batchSender = batchSender;
+        try {
+            Files.createDirectories(directory);
+            deleteOrphanOffsets();
+            List<Path> segments = segments();
+            for (Path segment : segments) {
+                size.addAndGet(Files.size(segment));
+            }
+            activeSequence = segments.isEmpty() ? 0 : sequenceOf(segments.getLast()) + 1;
+            active = openSegment(activeSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал hits в " + directory, e);
+        }
+        if (size.get() > 0) {
+            log.info("В журнале {} найдено {} байт неотправленных hits", directory, size.get());
+        }
+        Thread.Builder threadBuilder = virtualThread ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        this.worker = threadBuilder.name("stat-hit-spool").unstarted(this::run);
+
+        registerMetrics(meterRegistry);
+        worker.start();
+    }
+
+    /**
+     * Дописывает hits в активный сегмент. Если журнал превысил max-size, hits отбрасываются.
+     */
+    public void append(List<HitDto> hits) {
+        ByteBuffer buffer = encode(hits);
+        synchronized (lock) {
+            if (size.get() + buffer.remaining() > properties.getMaxSize()) {
+                dropped.addAndGet(hits.size());
+                log.error("Журнал hits {} переполнен, {} hits отброшено", directory, hits.size());
+                return;
+            }
+            long start;
+            try {
+                reopenIfClosed();
+                start = active.size();
+            } catch (IOException e) {
+                dropped.addAndGet(hits.size());
+                log.error("Не удалось записать {} hits в журнал {}", hits.size(), directory, e);
+                return;
+            }
+            try {
+                long written = buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    active.write(buffer);
+                }
+                size.addAndGet(written);
+                spooled.addAndGet(hits.size());
+                if (active.size() >= properties.getSegmentSize()) {
+                    rotate();
+                }
+            } catch (IOException e) {
+                dropped.addAndGet(hits.size());
+                log.error("Не удалось записать {} hits в журнал {}", hits.size(), directory, e);
+                discardTail(start);
+            }
+        }
+    }
+
+    /**
+     * Отрезает частично записанную пачку, чтобы следующие записи не оказались за оборванной. Если отрезать
+     * не удалось, канал закрывается: оборванная запись станет концом сегмента, а запись продолжится в новом.
+     */
+    private void discardTail(long start) {
+        try {
+            active.truncate(start);
+        } catch (IOException e) {
+            log.error("Не удалось отрезать оборванную запись в журнале {}, сегмент закрывается", directory, e);
+            try {
+                active.close();
+            } catch (IOException closeError) {
+                log.error("Ошибка при закрытии сегмента журнала {}", directory, closeError);
+            }
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(properties.getReplayInterval().toMillis() + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        syncSealed();
+        synchronized (lock) {
+            try {
+                if (active.isOpen()) {
+                    active.force(false);
+                    active.close();
+                }
+            } catch (IOException e) {
+                log.error("Ошибка при закрытии журнала hits {}", directory, e);
+            }
+        }
+    }
+
+    public long getSpooled() {
+        return spooled.get();
+    }
+
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Поток будится через unpark, а не interrupt: прерывание во время записи или force() закрыло бы канал
+     * активного сегмента, и shutdown() не смог бы сбросить его на диск.
+     */
+    private void run() {
+        while (running) {
+            long wakeUp = System.nanoTime() + properties.getReplayInterval().toNanos();
+            for (long left = wakeUp - System.nanoTime(); running && left > 0; left = wakeUp - System.nanoTime()) {
+                LockSupport.parkNanos(left);
+            }
+            if (!running) {
+                return;
+            }
+            try {
+                replay();
+            } catch (IOException e) {
+                log.error("Ошибка при чтении журнала hits {}", directory, e);
+            } catch (RuntimeException e) {
+                log.debug("Повторная отправка hits отложена: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Отправляет закрытые сегменты по порядку, а когда они закончились — закрывает и отправляет активный.
+     * Ошибка отправки прерывает проход до следующего интервала, так что пока StatServer недоступен,
+     * новые сегменты не создаются.
+     */
+    private void replay() throws IOException {
+        syncSealed();
+        FileChannel current;
+        long sealedBefore;
+        boolean empty;
+        synchronized (lock) {
+            reopenIfClosed();
+            current = active;
+            sealedBefore = activeSequence;
+            empty = size.get() == 0;
+        }
+        force(current);
+        if (empty) {
+            return;
+        }
+        for (Path segment : segments()) {
+            if (sequenceOf(segment) < sealedBefore) {
+                replaySegment(segment);
+            }
+        }
+        Path sealed = null;
+        synchronized (lock) {
+            if (active.size() > 0) {
+                sealed = directory.resolve(SEGMENT_PREFIX + activeSequence + SEGMENT_SUFFIX);
+                rotate();
+            }
+        }
+        if (sealed != null) {
+            syncSealed();
+            replaySegment(sealed);
+        }
+    }
+
+    /**
+     * Сбрасывает на диск и закрывает сегменты, заполненные после прошлого прохода.
+     */
+    private void syncSealed() {
+        FileChannel next;
+        while ((next = sealedChannels.poll()) != null) {
+            try (FileChannel sealed = next) {
+                force(sealed);
+            } catch (IOException e) {
+                log.error("Ошибка при закрытии сегмента журнала hits {}", directory, e);
+            }
+        }
+    }
+
+    /**
+     * Канал активного сегмента может быть закрыт пишущим потоком после неудачной записи; сбрасывать тогда нечего.
+     */
+    private void force(FileChannel channel) throws IOException {
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            log.debug("Сегмент журнала hits {} закрыт до сброса на диск", directory);
+        }
+    }
+
+    private void replaySegment(Path segment) throws IOException {
+        Path offsetFile = offsetFile(segment);
+        long offset = Files.exists(offsetFile) ? Long.parseLong(Files.readString(offsetFile).trim()) : 0;
+        long segmentSize = Files.size(segment);
+        boolean damaged = false;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+            List<HitDto> batch = new ArrayList<>(properties.getBatchSize());
+            int position = (int) offset;
+            while (position < data.limit()) {
+                int end = recordEnd(data, position);
+                if (end < 0) {
+                    int next = nextRecord(data, position + 1);
+                    if (next < 0 && isTorn(data, position)) {
+                        log.warn("Оборванная запись в конце журнала {} на позиции {}", segment, position);
+                        break;
+                    }
+                    damaged = true;
+                    corrupted.incrementAndGet();
+                    if (next < 0) {
+                        log.error("Повреждённые данные в журнале {} с позиции {} до конца сегмента", segment, position);
+                        break;
+                    }
+                    log.error("Повреждённые данные в журнале {} на позициях {}-{} пропущены", segment, position, next);
+                    position = next;
+                    continue;
+                }
+                batch.add(decode(data, position));
+                position = end;
+                if (batch.size() == properties.getBatchSize()) {
+                    send(batch, segment, position);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                send(batch, segment, position);
+            }
+        }
+        Files.deleteIfExists(offsetFile);
+        if (damaged) {
+            Path quarantine = segment.resolveSibling(segment.getFileName() + CORRUPT_SUFFIX);
+            Files.move(segment, quarantine, StandardCopyOption.REPLACE_EXISTING);
+            log.error("Сегмент с повреждёнными данными сохранён как {}", quarantine);
+        } else {
+            Files.delete(segment);
+        }
+        size.addAndGet(-segmentSize);
+    }
+
+    /**
+     * Отправляет пачку и сохраняет позицию после неё. Пачка, отклонённая с 4xx, пропускается, чтобы не
+     * блокировать остаток журнала.
+     */
+    private void send(List<HitDto> batch, Path segment, long offset) throws IOException {
+        try {
+            batchSender.accept(batch);
+            replayed.addAndGet(batch.size());
+        } catch (HttpClientErrorException e) {
+            dropped.addAndGet(batch.size());
+            log.error("StatServer отклонил {} hits из журнала {}: {}", batch.size(), segment, e.getMessage());
+        }
+        Path offsetFile = offsetFile(segment);
+        Path tmp = offsetFile.resolveSibling(offsetFile.getFileName() + ".tmp");
+        Files.writeString(tmp, Long.toString(offset));
+        Files.move(tmp, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Из журнала {} обработано {} hits", segment.getFileName(), batch.size());
+    }
+
+    /**
+     * Позиция конца целой записи, начинающейся с position, или -1, если там нет записи с верными длиной, CRC
+     * и содержимым.
+     */
+    private static int recordEnd(ByteBuffer data, int position) {
+        if (data.limit() - position < HEADER_SIZE) {
+            return -1;
+        }
+        int length = data.getInt(position);
+        if (length <= 0 || length > MAX_RECORD_SIZE || length > data.limit() - position - HEADER_SIZE) {
+            return -1;
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(data.slice(position + HEADER_SIZE, length));
+        if ((int) checksum.getValue() != data.getInt(position + Integer.BYTES)) {
+            return -1;
+        }
+        try {
+            decode(data, position);
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+        return position + HEADER_SIZE + length;
+    }
+
+    /**
+     * Ищет первую целую запись не раньше from, чтобы продолжить чтение после повреждённых байтов.
+     */
+    private static int nextRecord(ByteBuffer data, int from) {
+        for (int position = from; position <= data.limit() - HEADER_SIZE; position++) {
+            if (recordEnd(data, position) >= 0) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Запись оборвана записью на диск: от неё остался только заголовок или его часть, либо данные короче длины
+     * из заголовка.
+     */
+    private static boolean isTorn(ByteBuffer data, int position) {
+        if (data.limit() - position < HEADER_SIZE) {
+            return true;
+        }
+        int length = data.getInt(position);
+        return length > 0 && length <= MAX_RECORD_SIZE && length > data.limit() - position - HEADER_SIZE;
+    }
+
+    /**
+     * Канал закрывается при прерывании пишущего потока или после неудачной записи, и в конце сегмента может
+     * остаться оборванная запись. Такой сегмент больше не дописывается: запись продолжается в новом, иначе
+     * следующие hits оказались бы за оборванной записью или отбрасывались бы.
+     */
+    private void reopenIfClosed() throws IOException {
+        if (!active.isOpen()) {
+            activeSequence++;
+            active = openSegment(activeSequence);
+        }
+    }
+
+    /**
+     * Подменяет активный сегмент новым. Заполненный сегмент сбрасывает на диск и закрывает поток повторной
+     * отправки, чтобы пишущий поток не ждал fsync.
+     */
+    private void rotate() throws IOException {
+        FileChannel sealed = active;
+        active = openSegment(activeSequence + 1);
+        activeSequence++;
+        sealedChannels.add(sealed);
+    }
+
+    private FileChannel openSegment(long sequence) throws IOException {
+        return FileChannel.open(directory.resolve(SEGMENT_PREFIX + sequence + SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Удаляет hits-N.offset и недописанные hits-N.offset.tmp, для которых нет сегмента hits-N.spool.
+     */
+    private void deleteOrphanOffsets() throws IOException {
+        List<Path> orphans;
+        try (Stream<Path> files = Files.list(directory)) {
+            orphans = files.filter(file -> {
+                String name = file.getFileName().toString();
+                int suffix = name.lastIndexOf(OFFSET_SUFFIX);
+                return name.startsWith(SEGMENT_PREFIX) && suffix > 0
+                        && !Files.exists(file.resolveSibling(name.substring(0, suffix) + SEGMENT_SUFFIX));
+            }).toList();
+        }
+        for (Path orphan : orphans) {
+            Files.delete(orphan);
+            log.warn("Удалён файл позиции {} без сегмента журнала hits", orphan);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)))
+                    .toList();
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static Path offsetFile(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + OFFSET_SUFFIX);
+    }
+
+    private static ByteBuffer encode(List<HitDto> hits) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(hits.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(96);
+        DataOutputStream recordOut = new DataOutputStream(record);
+        try {
+            for (HitDto hit : hits) {
+                record.reset();
+                writeString(recordOut, hit.getApp());
+                writeString(recordOut, hit.getUri());
+                writeString(recordOut, hit.getIp());
+                writeString(recordOut, hit.getTimestamp());
+                CRC32 checksum = new CRC32();
+                checksum.update(record.toByteArray());
+                out.writeInt(record.size());
+                out.writeInt((int) checksum.getValue());
+                record.writeTo(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static HitDto decode(ByteBuffer data, int position) throws IOException {
+        int length = data.getInt(position);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                readBytes(data, position + HEADER_SIZE, length)));
+        return HitDto.builder()
+                .app(readString(in))
+                .uri(readString(in))
+                .ip(readString(in))
+                .timestamp(readString(in))
+                .build();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.available()) {
+            throw new IOException("Длина строки " + length + " больше размера записи");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer data, int position, int length) {
+        byte[] bytes = new byte[length];
+        data.get(position, bytes);
+        return bytes;
+    }
+
+    private void registerMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("stat.client.spool.hits", spooled, AtomicLong::get)
+                .tag("result", "spooled").register(meterRegistry);
+        FunctionCounter.builder("stat.client.spool.hits", replayed, AtomicLong::get)
+                .tag("result", "replayed").register(meterRegistry);
+        FunctionCounter.builder("stat.client.spool.hits", dropped, AtomicLong::get)
+                .tag("result", "dropped").register(meterRegistry);
+        FunctionCounter.builder("stat.client.spool.hits", corrupted, AtomicLong::get)
+                .tag("result", "corrupted").register(meterRegistry);
+        Gauge.builder("stat.client.spool.size", size, AtomicLong::get).baseUnit("bytes").register(meterRegistry);
+    }
+
+}
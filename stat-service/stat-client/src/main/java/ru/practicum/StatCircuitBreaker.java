@@ -0,0 +1,67 @@
+package ru.practicum;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * Предохранитель запросов к StatServer. После failureThreshold ошибок подряд запросы отклоняются
+ * без обращения к серверу на время openDuration, затем пропускается один пробный запрос:
+ * успех замыкает цепь, ошибка снова размыкает её.
+ */
+@Slf4j
+public class StatCircuitBreaker {
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    public StatCircuitBreaker(StatClientProperties.CircuitBreaker properties) {
+        this.failureThreshold = properties.getFailureThreshold();
+        this.openDurationNanos = properties.getOpenDuration().toNanos();
+    }
+
+    public synchronized boolean tryAcquire() {
+        return switch (state) {
+            case CLOSED -> true;
+            case HALF_OPEN -> false;
+            case OPEN -> {
+                if (System.nanoTime() - openedAt < openDurationNanos) {
+                    yield false;
+                }
+                state = State.HALF_OPEN;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("StatServer снова доступен, запросы возобновлены");
+        }
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            log.warn("StatServer недоступен после {} ошибок подряд, запросы приостановлены на {}",
+                    failures, Duration.ofNanos(openDurationNanos));
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+}
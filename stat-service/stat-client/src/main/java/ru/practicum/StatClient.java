@@ -1,38 +1,136 @@
 package ru.practicum;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 @Slf4j
 @Component
 public class StatClient {
+    private static final MediaType SMILE = MediaType.parseMediaType(HitBatchDto.MEDIA_TYPE);
+
     private final RestTemplate restTemplate;
     private final String statsServiceUri;
+    private final AsyncHitSender hitSender;
+    private final HitSpool spool;
+    private final StatCircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, StatDto[]> lastStats;
+    private final HttpHeaders statsHeaders = new HttpHeaders();
+    private volatile boolean compactHits;
 
-    public StatClient(@Value("${stat-server.url:http://localhost:9090}") String statsServiceUri) {
-        this.statsServiceUri = statsServiceUri;
-        this.restTemplate = new RestTemplate();
+    public StatClient(StatClientProperties properties, MeterRegistry meterRegistry,
+                      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.statsServiceUri = properties.getUrl();
+        this.restTemplate = new RestTemplate(createRequestFactory(properties, virtualThreads));
+        this.circuitBreaker = new StatCircuitBreaker(properties.getCircuitBreaker());
+        this.meterRegistry = meterRegistry;
+        this.lastStats = createStatsCache(properties.getStaleStatsCacheSize());
+        this.compactHits = properties.isCompactEncoding();
+        if (properties.isCompactEncoding()) {
+            statsHeaders.setAccept(List.of(SMILE, MediaType.APPLICATION_JSON));
+        }
+        this.spool = properties.getSpool().isEnabled()
+                ? new HitSpool(properties.getSpool(), this::sendHits, meterRegistry, virtualThreads)
+                : null;
+        this.hitSender = properties.getAsync().isEnabled()
+                ? new AsyncHitSender(properties.getAsync(), this::sendHits, spool, meterRegistry, virtualThreads)
+                : null;
+        Gauge.builder("stat.client.circuit.open", circuitBreaker,
+                        breaker -> breaker.getState() == StatCircuitBreaker.State.CLOSED ? 0 : 1)
+                .register(meterRegistry);
     }
 
     public void addHit(HitDto hitDto) {
+        if (hitSender != null) {
+            log.debug("Постановка hit в очередь отправки: {}", hitDto);
+            hitSender.offer(hitDto);
+            return;
+        }
         HttpEntity<HitDto> requestEntity = new HttpEntity<>(hitDto);
         log.info("Отправка POST-запроса в StatServer: {}", hitDto);
         try {
-            restTemplate.exchange(statsServiceUri + "/hit", HttpMethod.POST, requestEntity, Void.class);
+            call("/hit", () -> restTemplate.exchange(statsServiceUri + "/hit", HttpMethod.POST, requestEntity,
+                    Void.class));
             log.info("POST-запрос успешно выполнен.");
+        } catch (StatServerUnavailableException e) {
+            log.debug("Hit не отправлен: {}", e.getMessage());
+            spool(hitDto);
+        } catch (HttpClientErrorException e) {
+            log.error("StatServer отклонил hit {}: {}", hitDto, e.getMessage());
         } catch (Exception e) {
             log.error("Ошибка при отправке POST-запроса в StatServer", e);
+            spool(hitDto);
+        }
+    }
+
+    private void spool(HitDto hitDto) {
+        if (spool != null) {
+            spool.append(List.of(hitDto));
+        }
+    }
+
+    public AsyncHitSender getHitSender() {
+        return hitSender;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (hitSender != null) {
+            hitSender.shutdown();
+        }
+        if (spool != null) {
+            spool.shutdown();
         }
     }
 
+    private void sendHits(List<HitDto> hits) {
+        log.info("Отправка {} hits в StatServer", hits.size());
+        if (compactHits) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(SMILE);
+            HttpEntity<HitBatchDto> batch = new HttpEntity<>(HitBatchEncoder.encode(hits), headers);
+            try {
+                call("/hits", () -> restTemplate.exchange(statsServiceUri + "/hits", HttpMethod.POST, batch,
+                        Void.class));
+                return;
+            } catch (HttpClientErrorException.UnsupportedMediaType e) {
+                log.warn("StatServer не принимает {}, hits будут отправляться в JSON", SMILE);
+                compactHits = false;
+            }
+        }
+        call("/hits", () -> restTemplate.exchange(statsServiceUri + "/hits", HttpMethod.POST, new HttpEntity<>(hits),
+                Void.class));
+    }
+
+    /**
+     * Запрашивает статистику. Пока StatServer недоступен, возвращается последний успешный ответ на такой же
+     * запрос, а если его нет — пустой список со статусом 503.
+     */
     public ResponseEntity<StatDto[]> getStats(String start, String end, String[] uris, boolean unique) {
         Map<String, Object> parameters = new HashMap<>();
         parameters.put("start", start);
@@ -48,16 +146,85 @@ public class StatClient {
         }
 
         String path = pathBuilder.toString();
+        String cacheKey = start + "|" + end + "|" + unique + "|" + Arrays.toString(uris);
         log.info("Отправка GET-запроса в StatServer: path={}, params={}", path, parameters);
 
         try {
-            ResponseEntity<StatDto[]> response = restTemplate.getForEntity(path, StatDto[].class, parameters);
+            ResponseEntity<StatDto[]> response = call("/stats",
+                    () -> restTemplate.exchange(path, HttpMethod.GET, new HttpEntity<>(statsHeaders), StatDto[].class,
+                            parameters));
             log.info("Ответ от StatServer: status={}, body={}", response.getStatusCode(), response.getBody());
-
+            if (response.getBody() != null) {
+                lastStats.put(cacheKey, response.getBody());
+            }
             return response;
         } catch (Exception e) {
-            log.error("Ошибка при отправке GET-запроса в StatServer", e);
-            return ResponseEntity.status(500).body(null);
+            log.error("Ошибка при отправке GET-запроса в StatServer: {}", e.getMessage());
+            StatDto[] stale = lastStats.get(cacheKey);
+            if (stale != null) {
+                return ResponseEntity.ok(stale);
+            }
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new StatDto[0]);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Выполняет запрос через предохранитель и записывает его длительность в гистограмму stat.client.requests.
+     * Ответ 4xx означает, что сервер доступен, и не размыкает цепь; любое другое исключение или Error считается
+     * ошибкой.
+     */
+    private <T> T call(String endpoint, Supplier<T> request) {
+        if (!circuitBreaker.tryAcquire()) {
+            Counter.builder("stat.client.requests.rejected").tag("endpoint", endpoint).register(meterRegistry)
+                    .increment();
+            throw new StatServerUnavailableException(endpoint);
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            T response = request.get();
+            outcome = "success";
+            return response;
+        } catch (HttpClientErrorException e) {
+            outcome = "client_error";
+            throw e;
+        } finally {
+            // Исход отмечается при любом Throwable: иначе ошибка пробного запроса оставила бы цепь полуоткрытой
+            if ("error".equals(outcome)) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            sample.stop(Timer.builder("stat.client.requests")
+                    .tag("endpoint", endpoint)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * HTTP/1.1 с пулом keep-alive соединений JDK HttpClient и таймаутами на соединение и ответ.
+     */
+    private static JdkClientHttpRequestFactory createRequestFactory(StatClientProperties properties,
+                                                                    boolean virtualThreads) {
+        HttpClient.Builder httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(properties.getConnectTimeout());
+        if (virtualThreads) {
+            httpClient.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient.build());
+        requestFactory.setReadTimeout(properties.getReadTimeout());
+        return requestFactory;
+    }
+
+    private static Map<String, StatDto[]> createStatsCache(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StatDto[]> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+}
@@ -0,0 +1,64 @@
+package ru.practicum;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "stat-server")
+public class StatClientProperties {
+    private String url = "http://localhost:9090";
+    private Duration connectTimeout = Duration.ofSeconds(1);
+    private Duration readTimeout = Duration.ofSeconds(2);
+    /**
+     * Сколько последних ответов /stats хранить, чтобы отдавать их, пока StatServer недоступен.
+     */
+    private int staleStatsCacheSize = 1000;
+    /**
+     * Отправлять пачки hits и запрашивать статистику в Smile. Если сервер отвечает 415, клиент
+     * возвращается к JSON.
+     */
+    private boolean compactEncoding = true;
+    private final Async async = new Async();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private final Spool spool = new Spool();
+
+    @Getter
+    @Setter
+    public static class Async {
+        private boolean enabled = false;
+        private int queueCapacity = 10_000;
+        private int batchSize = 100;
+        private Duration flushInterval = Duration.ofMillis(500);
+        private HitOverflowPolicy overflowPolicy = HitOverflowPolicy.DROP_OLDEST;
+        private Duration offerTimeout = Duration.ofMillis(50);
+        private int maxRetries = 3;
+        private Duration retryBackoff = Duration.ofMillis(200);
+    }
+
+    @Getter
+    @Setter
+    public static class CircuitBreaker {
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(10);
+    }
+
+    /**
+     * Журнал hits, не отправленных из-за недоступности StatServer.
+     */
+    @Getter
+    @Setter
+    public static class Spool {
+        private boolean enabled = false;
+        private String directory = System.getProperty("java.io.tmpdir") + "/ewm-stat-spool";
+        private Duration replayInterval = Duration.ofSeconds(5);
+        private int batchSize = 500;
+        private long segmentSize = 16L * 1024 * 1024;
+        private long maxSize = 256L * 1024 * 1024;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum;
+
+/**
+ * Запрос к StatServer отклонён без отправки: предохранитель разомкнут.
+ */
+public class StatServerUnavailableException extends RuntimeException {
+    public StatServerUnavailableException(String endpoint) {
+        super("StatServer недоступен, запрос " + endpoint + " отклонён");
+    }
+}
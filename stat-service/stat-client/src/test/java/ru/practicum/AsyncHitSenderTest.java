@@ -0,0 +1,196 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class AsyncHitSenderTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<List<HitDto>> batches = new CopyOnWriteArrayList<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private HttpServer server;
+    private volatile int failures;
+    private volatile boolean gated;
+    private StatClient client;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/hits", this::handleHits);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        if (client != null) {
+            client.shutdown();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void queuedHitsAreSentInBatchesOfConfiguredSize() {
+        gated = true;
+        AsyncHitSender sender = sender(properties -> properties.setBatchSize(5));
+
+        sender.offer(hit(0));
+        await().atMost(Duration.ofSeconds(5)).until(() -> requests.get() == 1);
+        hits(1, 12).forEach(sender::offer);
+        release.countDown();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> sender.getSent() == 12);
+        assertThat(batches).extracting(List::size).containsExactly(1, 5, 5, 1);
+        assertReceived(hits(0, 12));
+    }
+
+    @Test
+    void failedBatchIsRetriedAndDroppedAfterFourAttempts() {
+        failures = Integer.MAX_VALUE;
+        AsyncHitSender sender = sender(properties -> properties.setMaxRetries(3));
+
+        sender.offer(hit(0));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> sender.getDropped() == 1);
+        assertThat(requests).hasValue(4);
+        assertThat(sender.getRetried()).isEqualTo(3);
+        assertThat(sender.getSent()).isZero();
+    }
+
+    @Test
+    void batchIsSentOnRetryAfterTransientFailures() {
+        failures = 2;
+        AsyncHitSender sender = sender(properties -> properties.setMaxRetries(3));
+
+        sender.offer(hit(0));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> sender.getSent() == 1);
+        assertThat(requests).hasValue(3);
+        assertThat(sender.getRetried()).isEqualTo(2);
+        assertThat(sender.getDropped()).isZero();
+        assertReceived(hits(0, 1));
+    }
+
+    @Test
+    void fullQueueDropsOldestHits() {
+        gated = true;
+        AsyncHitSender sender = sender(properties -> properties.setQueueCapacity(3));
+
+        sender.offer(hit(0));
+        await().atMost(Duration.ofSeconds(5)).until(() -> requests.get() == 1);
+        hits(1, 6).forEach(hit -> assertThat(sender.offer(hit)).isTrue());
+        release.countDown();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> sender.getSent() == 4);
+        assertThat(sender.getDropped()).isEqualTo(2);
+        assertReceived(List.of(hit(0), hit(3), hit(4), hit(5)));
+    }
+
+    @Test
+    void fullQueueRejectsNewHitsWithBlockPolicy() {
+        gated = true;
+        AsyncHitSender sender = sender(properties -> {
+            properties.setQueueCapacity(2);
+            properties.setOverflowPolicy(HitOverflowPolicy.BLOCK);
+            properties.setOfferTimeout(Duration.ofMillis(20));
+        });
+
+        sender.offer(hit(0));
+        await().atMost(Duration.ofSeconds(5)).until(() -> requests.get() == 1);
+        assertThat(sender.offer(hit(1))).isTrue();
+        assertThat(sender.offer(hit(2))).isTrue();
+        assertThat(sender.offer(hit(3))).isFalse();
+        release.countDown();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> sender.getSent() == 3);
+        assertThat(sender.getDropped()).isEqualTo(1);
+        assertReceived(hits(0, 3));
+    }
+
+    @Test
+    void shutdownSendsQueuedHits() {
+        AsyncHitSender sender = sender(properties -> {
+            properties.setBatchSize(4);
+            properties.setFlushInterval(Duration.ofMillis(200));
+        });
+
+        hits(0, 10).forEach(sender::offer);
+        client.shutdown();
+
+        assertThat(sender.getQueueSize()).isZero();
+        assertThat(sender.getSent()).isEqualTo(10);
+        assertReceived(hits(0, 10));
+    }
+
+    private AsyncHitSender sender(Consumer<StatClientProperties.Async> customizer) {
+        StatClientProperties properties = new StatClientProperties();
+        properties.setUrl("http://localhost:" + server.getAddress().getPort());
+        properties.setCompactEncoding(false);
+        properties.setReadTimeout(Duration.ofSeconds(10));
+        properties.getCircuitBreaker().setFailureThreshold(100);
+        properties.getAsync().setEnabled(true);
+        properties.getAsync().setRetryBackoff(Duration.ofMillis(10));
+        customizer.accept(properties.getAsync());
+        client = new StatClient(properties, new SimpleMeterRegistry(), false);
+        return client.getHitSender();
+    }
+
+    private void handleHits(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            HitDto[] hits = objectMapper.readValue(exchange.getRequestBody(), HitDto[].class);
+            if (requests.getAndIncrement() == 0 && gated) {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            if (failures > 0) {
+                failures--;
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            batches.add(Arrays.asList(hits));
+            exchange.sendResponseHeaders(201, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void assertReceived(List<HitDto> expected) {
+        assertThat(batches.stream().flatMap(List::stream).toList())
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(expected);
+    }
+
+    private static HitDto hit(int i) {
+        return HitDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/" + i)
+                .ip("10.0.0." + i)
+                .timestamp("2026-10-18 12:00:00")
+                .build();
+    }
+
+    private static List<HitDto> hits(int from, int to) {
+        return IntStream.range(from, to).mapToObj(AsyncHitSenderTest::hit).toList();
+    }
+}
@@ -0,0 +1,182 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class HitSpoolTest {
+    private static final Consumer<List<HitDto>> UNAVAILABLE = hits -> {
+        throw new IllegalStateException("StatServer недоступен");
+    };
+
+    @TempDir
+    private Path directory;
+
+    private final List<HitDto> sent = new CopyOnWriteArrayList<>();
+
+    @Test
+    void spooledHitsAreReplayedInOrder() throws IOException {
+        HitSpool spool = spool(sent::addAll);
+        try {
+            spool.append(hits(0, 3));
+            spool.append(hits(3, 7));
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> sent.size() == 7);
+            assertSent(7);
+            await().atMost(Duration.ofSeconds(5)).until(() -> spool.getSize() == 0);
+        } finally {
+            spool.shutdown();
+        }
+        assertThat(files(".offset")).isEmpty();
+    }
+
+    @Test
+    void replayResumesFromSavedOffsetAfterRestart() {
+        AtomicInteger calls = new AtomicInteger();
+        HitSpool failing = spool(hits -> {
+            if (calls.incrementAndGet() > 1) {
+                UNAVAILABLE.accept(hits);
+            }
+            sent.addAll(hits);
+        });
+        failing.append(hits(0, 5));
+        await().atMost(Duration.ofSeconds(5)).until(() -> calls.get() > 1);
+        failing.shutdown();
+        assertSent(2);
+
+        HitSpool restarted = spool(sent::addAll);
+        try {
+            await().atMost(Duration.ofSeconds(5)).until(() -> sent.size() == 5);
+            assertSent(5);
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    void orphanOffsetDoesNotSkipNewSegmentWithSameNumber() throws IOException {
+        Files.writeString(directory.resolve("hits-0.offset"), "1000000");
+
+        HitSpool spool = spool(sent::addAll);
+        try {
+            spool.append(hits(0, 3));
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> sent.size() == 3);
+            assertSent(3);
+        } finally {
+            spool.shutdown();
+        }
+    }
+
+    @Test
+    void tornTailEndsSegmentAndLaterHitsAreKept() throws IOException {
+        HitSpool failing = spool(UNAVAILABLE);
+        failing.append(hits(0, 3));
+        failing.shutdown();
+        Path segment = files(".spool").getFirst();
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(segment, StandardOpenOption.APPEND))) {
+            out.writeInt(100);
+            out.writeInt(0);
+            out.write(new byte[10]);
+        }
+
+        HitSpool restarted = spool(sent::addAll);
+        try {
+            restarted.append(hits(3, 4));
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> sent.size() == 4);
+            assertSent(4);
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    void corruptedRecordInMiddleOfSegmentDoesNotLoseLaterHits() throws IOException {
+        HitSpool failing = spool(UNAVAILABLE);
+        failing.append(hits(0, 5));
+        failing.shutdown();
+        Path segment = files(".spool").getFirst();
+        byte[] bytes = Files.readAllBytes(segment);
+        int second = 2 * Integer.BYTES + ByteBuffer.wrap(bytes).getInt(0);
+        bytes[second + 2 * Integer.BYTES + 3] ^= 0x7f;
+        Files.write(segment, bytes);
+
+        HitSpool restarted = spool(sent::addAll);
+        try {
+            await().atMost(Duration.ofSeconds(5)).until(() -> sent.size() == 4);
+            List<HitDto> expected = hits(0, 5);
+            assertThat(sent).usingRecursiveFieldByFieldElementComparator()
+                    .containsExactly(expected.get(0), expected.get(2), expected.get(3), expected.get(4));
+            await().atMost(Duration.ofSeconds(5)).until(() -> files(".corrupt").size() == 1);
+            assertThat(Files.readAllBytes(files(".corrupt").getFirst())).isEqualTo(bytes);
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    void interruptedWriterDoesNotBreakLaterAppends() throws Exception {
+        HitSpool spool = spool(sent::addAll);
+        try {
+            Thread interrupted = new Thread(() -> {
+                Thread.currentThread().interrupt();
+                spool.append(hits(100, 101));
+            });
+            interrupted.start();
+            interrupted.join();
+            spool.append(hits(0, 3));
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> sent.size() == 3);
+            assertSent(3);
+        } finally {
+            spool.shutdown();
+        }
+    }
+
+    private void assertSent(int count) {
+        assertThat(sent).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(hits(0, count));
+    }
+
+    private HitSpool spool(Consumer<List<HitDto>> sender) {
+        StatClientProperties.Spool properties = new StatClientProperties.Spool();
+        properties.setDirectory(directory.toString());
+        properties.setReplayInterval(Duration.ofMillis(100));
+        properties.setBatchSize(2);
+        return new HitSpool(properties, sender, new SimpleMeterRegistry(), false);
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+
+    private static List<HitDto> hits(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> HitDto.builder()
+                        .app("ewm-main-service")
+                        .uri("/events/" + i)
+                        .ip("10.0.0." + i)
+                        .timestamp("2026-10-18 12:00:00")
+                        .build())
+                .toList();
+    }
+}
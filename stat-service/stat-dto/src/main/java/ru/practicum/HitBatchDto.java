@@ -0,0 +1,31 @@
+package ru.practicum;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Пачка hits для компактного бинарного формата (Smile). Hits хранятся по столбцам: i-й hit состоит
+ * из apps[appIndexes[i]], uris[uriIndexes[i]], ips[i] и timestamps[i]. Повторяющиеся app и uri
+ * передаются один раз в словарях.
+ *
+ * <p>Время — миллисекунды от 1970-01-01T00:00 без учёта часового пояса, то есть LocalDateTime
+ * со смещением UTC: на сервере восстанавливается то же локальное время, что и в строке HitDto.
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HitBatchDto {
+    public static final String MEDIA_TYPE = "application/x-jackson-smile";
+
+    private List<String> apps;
+    private List<String> uris;
+    private int[] appIndexes;
+    private int[] uriIndexes;
+    private List<String> ips;
+    private long[] timestamps;
+}
@@ -1,20 +1,30 @@
 package ru.practicum.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import ru.practicum.HitBatchDto;
 import ru.practicum.HitDto;
-import ru.practicum.StatDto;
+import ru.practicum.model.HyperLogLog;
+import ru.practicum.model.StatTable;
+import ru.practicum.repository.HitBatchRepository;
 import ru.practicum.service.StatService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -22,7 +32,9 @@ import java.util.List;
 @Slf4j
 public class StatsController {
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String ERROR_BOUND_HEADER = "X-Stats-Error-Bound";
     private final StatService statService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -31,15 +43,61 @@ public class StatsController {
         statService.addHit(hitDto);
     }
 
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public void addHits(@RequestBody List<HitDto> hitDtos) {
+        log.info("POST /hits: {} hits", hitDtos.size());
+        statService.addHits(hitDtos);
+    }
+
+    /**
+     * Читает тело построчно и сохраняет hits пачками по размеру JDBC-пакета, не держа весь запрос в памяти.
+     * Каждая пачка сохраняется в своей транзакции: при ошибке в середине тела уже сохранённые пачки остаются.
+     */
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public void addHitsNdjson(InputStream body) throws IOException {
+        long saved = 0;
+        List<HitDto> chunk = new ArrayList<>(HitBatchRepository.BATCH_SIZE);
+        try (MappingIterator<HitDto> iterator = objectMapper.readerFor(HitDto.class).readValues(body)) {
+            while (iterator.hasNextValue()) {
+                chunk.add(iterator.nextValue());
+                if (chunk.size() == HitBatchRepository.BATCH_SIZE) {
+                    statService.addHits(chunk);
+                    saved += chunk.size();
+                    chunk = new ArrayList<>(HitBatchRepository.BATCH_SIZE);
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            statService.addHits(chunk);
+            saved += chunk.size();
+        }
+        log.info("POST /hits (ndjson): {} hits", saved);
+    }
+
+    @PostMapping(value = "/hits", consumes = HitBatchDto.MEDIA_TYPE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public void addHitBatch(@RequestBody HitBatchDto batch) {
+        log.info("POST /hits (smile): {} hits", batch.getIps() != null ? batch.getIps().size() : 0);
+        statService.addHitBatch(batch);
+    }
+
     @GetMapping("/stats")
-    @ResponseStatus(HttpStatus.OK)
-    public List<StatDto> getStats(@RequestParam String start,
-                                  @RequestParam String end,
-                                  @RequestParam(required = false) String[] uris,
-                                  @RequestParam(defaultValue = "false") boolean unique) {
+    public ResponseEntity<StatTable> getStats(@RequestParam String start,
+                                              @RequestParam String end,
+                                              @RequestParam(required = false) String[] uris,
+                                              @RequestParam(defaultValue = "false") boolean unique,
+                                              @RequestParam(defaultValue = "false") boolean approximate) {
         LocalDateTime startTime = LocalDateTime.parse(start, FORMATTER);
         LocalDateTime endTime = LocalDateTime.parse(end, FORMATTER);
-        log.info("GET /stats?start={}&end={}&uris={}&unique={}", start, end, uris, unique);
-        return statService.getStats(startTime, endTime, uris, unique);
+        log.info("GET /stats?start={}&end={}&uris={}&unique={}&approximate={}", start, end, uris, unique, approximate);
+        StatTable stats = statService.getStats(startTime, endTime, uris, unique, approximate);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (unique && approximate) {
+            response.header(ERROR_BOUND_HEADER, String.valueOf(HyperLogLog.STANDARD_ERROR));
+        }
+        return response.body(stats);
     }
 }
\ No newline at end of file
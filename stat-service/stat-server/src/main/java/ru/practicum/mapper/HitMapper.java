@@ -1,10 +1,15 @@
 package ru.practicum.mapper;
 
+import ru.practicum.HitBatchDto;
 import ru.practicum.HitDto;
+import ru.practicum.exception.ValidationRequestException;
 import ru.practicum.model.Hit;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
 public class HitMapper {
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
@@ -21,4 +26,35 @@ public class HitMapper {
                 .timestamp(LocalDateTime.parse(hitDto.getTimestamp(), FORMATTER))
                 .build();
     }
+
+    /**
+     * Восстанавливает hits из пачки. Время, как и в строке HitDto, округляется вниз до секунды: запросы /stats
+     * превращают включительный end в end + 1s, что верно только для целых секунд.
+     */
+    public static List<Hit> toHits(HitBatchDto batch) {
+        if (batch.getApps() == null || batch.getUris() == null || batch.getAppIndexes() == null
+                || batch.getUriIndexes() == null || batch.getIps() == null || batch.getTimestamps() == null) {
+            throw new ValidationRequestException("В пачке hits отсутствуют обязательные столбцы");
+        }
+        int size = batch.getTimestamps().length;
+        if (batch.getAppIndexes().length != size || batch.getUriIndexes().length != size
+                || batch.getIps().size() != size) {
+            throw new ValidationRequestException("Столбцы пачки hits имеют разную длину");
+        }
+        List<Hit> hits = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                long millis = batch.getTimestamps()[i];
+                hits.add(Hit.builder()
+                        .app(batch.getApps().get(batch.getAppIndexes()[i]))
+                        .uri(batch.getUris().get(batch.getUriIndexes()[i]))
+                        .ip(batch.getIps().get(i))
+                        .timestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L), 0, ZoneOffset.UTC))
+                        .build());
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new ValidationRequestException("Индекс словаря пачки hits вне диапазона: " + e.getMessage());
+        }
+        return hits;
+    }
 }
\ No newline at end of file
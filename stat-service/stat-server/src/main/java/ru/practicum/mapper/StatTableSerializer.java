@@ -0,0 +1,31 @@
+package ru.practicum.mapper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.springframework.boot.jackson.JsonComponent;
+import ru.practicum.model.StatTable;
+
+import java.io.IOException;
+
+/**
+ * Пишет {@link StatTable} массивом объектов StatDto прямо в JsonGenerator. Регистрируется в общем
+ * Jackson2ObjectMapperBuilder, поэтому используется и для JSON, и для Smile.
+ */
+@JsonComponent
+public class StatTableSerializer extends JsonSerializer<StatTable> {
+
+    @Override
+    public void serialize(StatTable table, JsonGenerator generator, SerializerProvider serializers)
+            throws IOException {
+        generator.writeStartArray(table, table.size());
+        for (int i = 0; i < table.size(); i++) {
+            generator.writeStartObject();
+            generator.writeStringField("app", table.getApp(i));
+            generator.writeStringField("uri", table.getUri(i));
+            generator.writeNumberField("hits", table.getHits(i));
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+}
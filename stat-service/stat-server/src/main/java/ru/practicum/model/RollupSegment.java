@@ -0,0 +1,55 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Часть интервала [from, to): либо целые бакеты одной гранулярности, либо сырые строки (granularity == null).
+ */
+@Getter
+@AllArgsConstructor
+public class RollupSegment {
+    private final RollupGranularity granularity;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    public boolean isRaw() {
+        return granularity == null;
+    }
+
+    /**
+     * Разбивает интервал на самые крупные целиком покрытые бакеты из levels (от крупных к мелким)
+     * и сырые края, которые не покрывает даже самый мелкий бакет.
+     */
+    public static List<RollupSegment> plan(LocalDateTime from, LocalDateTime to, RollupGranularity... levels) {
+        List<RollupSegment> segments = new ArrayList<>();
+        plan(from, to, levels, 0, segments);
+        return segments;
+    }
+
+    private static void plan(LocalDateTime from, LocalDateTime to, RollupGranularity[] levels, int level,
+                             List<RollupSegment> segments) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (level == levels.length) {
+            segments.add(new RollupSegment(null, from, to));
+            return;
+        }
+
+        RollupGranularity granularity = levels[level];
+        LocalDateTime alignedFrom = granularity.ceil(from);
+        LocalDateTime alignedTo = granularity.floor(to);
+        if (alignedFrom.isBefore(alignedTo)) {
+            plan(from, alignedFrom, levels, level + 1, segments);
+            segments.add(new RollupSegment(granularity, alignedFrom, alignedTo));
+            plan(alignedTo, to, levels, level + 1, segments);
+        } else {
+            plan(from, to, levels, level + 1, segments);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.model;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+@Value
+public class SketchKey {
+    public static final Comparator<SketchKey> ORDER = Comparator.comparing(SketchKey::getGranularity)
+            .thenComparing(SketchKey::getBucket)
+            .thenComparing(SketchKey::getApp)
+            .thenComparing(SketchKey::getUri);
+
+    RollupGranularity granularity;
+    LocalDateTime bucket;
+    String app;
+    String uri;
+}
@@ -0,0 +1,110 @@
+package ru.practicum.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ответ /stats в параллельных массивах: app хранится одним экземпляром на значение, число hits — в long[].
+ * Таблица заполняется прямо из строк ResultSet и сериализуется {@link ru.practicum.mapper.StatTableSerializer}
+ * без промежуточных объектов на строку.
+ */
+public class StatTable {
+    private final Map<String, String> apps = new HashMap<>();
+    private String[] appColumn;
+    private String[] uriColumn;
+    private long[] hitsColumn;
+    private int size;
+
+    public StatTable() {
+        this(64);
+    }
+
+    public StatTable(int capacity) {
+        appColumn = new String[capacity];
+        uriColumn = new String[capacity];
+        hitsColumn = new long[capacity];
+    }
+
+    public void add(String app, String uri, long hits) {
+        if (size == hitsColumn.length) {
+            int capacity = Math.max(16, size * 2);
+            appColumn = Arrays.copyOf(appColumn, capacity);
+            uriColumn = Arrays.copyOf(uriColumn, capacity);
+            hitsColumn = Arrays.copyOf(hitsColumn, capacity);
+        }
+        String interned = apps.putIfAbsent(app, app);
+        appColumn[size] = interned != null ? interned : app;
+        uriColumn[size] = uri;
+        hitsColumn[size] = hits;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getApp(int index) {
+        return appColumn[index];
+    }
+
+    public String getUri(int index) {
+        return uriColumn[index];
+    }
+
+    public long getHits(int index) {
+        return hitsColumn[index];
+    }
+
+    /**
+     * Упорядочивает строки по убыванию hits на месте, для результатов, собранных не в SQL.
+     */
+    public StatTable sortByHitsDescending() {
+        sort(0, size - 1);
+        return this;
+    }
+
+    private void sort(int from, int to) {
+        while (to - from > 16) {
+            long pivot = hitsColumn[(from + to) >>> 1];
+            int left = from;
+            int right = to;
+            while (left <= right) {
+                while (hitsColumn[left] > pivot) {
+                    left++;
+                }
+                while (hitsColumn[right] < pivot) {
+                    right--;
+                }
+                if (left <= right) {
+                    swap(left++, right--);
+                }
+            }
+            // Меньшая часть — рекурсивно, большая — в цикле, чтобы глубина стека оставалась логарифмической
+            if (right - from < to - left) {
+                sort(from, right);
+                from = left;
+            } else {
+                sort(left, to);
+                to = right;
+            }
+        }
+        for (int i = from + 1; i <= to; i++) {
+            for (int j = i; j > from && hitsColumn[j - 1] < hitsColumn[j]; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        String app = appColumn[i];
+        appColumn[i] = appColumn[j];
+        appColumn[j] = app;
+        String uri = uriColumn[i];
+        uriColumn[i] = uriColumn[j];
+        uriColumn[j] = uri;
+        long hits = hitsColumn[i];
+        hitsColumn[i] = hitsColumn[j];
+        hitsColumn[j] = hits;
+    }
+}
@@ -0,0 +1,126 @@
+package ru.practicum.repository;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Столбцы блока hits: номер пары (app, uri) в словаре, время в миллисекундах и упакованный IP.
+ *
+ * <p>IPv4 хранится как беззнаковое 32-битное число, IPv6 — как индекс пары long в разделе {@link #ipv6},
+ * прочие строки — как номер в словаре. В файле блок записывается как [длина][CRC32][тело], а время в теле —
+ * смещением от минимального времени блока.
+ */
+class HitColumns {
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+    static final int BODY_HEADER_SIZE = 2 * Integer.BYTES + 2 * Long.BYTES;
+
+    static final long IPV6 = 1L << 62;
+    static final long DICTIONARY = 2L << 62;
+    static final long KIND_MASK = 3L << 62;
+
+    int size;
+    int[] keys;
+    long[] timestamps;
+    long[] ips;
+    int ipv6Size;
+    long[] ipv6;
+
+    HitColumns(int capacity) {
+        keys = new int[capacity];
+        timestamps = new long[capacity];
+        ips = new long[capacity];
+        ipv6 = new long[8];
+    }
+
+    void add(int key, long timestamp, long ip) {
+        if (size == keys.length) {
+            int capacity = Math.max(16, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            ips = Arrays.copyOf(ips, capacity);
+        }
+        keys[size] = key;
+        timestamps[size] = timestamp;
+        ips[size] = ip;
+        size++;
+    }
+
+    long addIpv6(long high, long low) {
+        if (2 * ipv6Size + 2 > ipv6.length) {
+            ipv6 = Arrays.copyOf(ipv6, ipv6.length * 2);
+        }
+        ipv6[2 * ipv6Size] = high;
+        ipv6[2 * ipv6Size + 1] = low;
+        return IPV6 | ipv6Size++;
+    }
+
+    /**
+     * Добавляет hit другого блока, перенося IPv6 в свой раздел.
+     */
+    void addFrom(HitColumns other, int index) {
+        long ip = other.ips[index];
+        if ((ip & KIND_MASK) == IPV6) {
+            int source = (int) (ip & ~KIND_MASK);
+            ip = addIpv6(other.ipv6[2 * source], other.ipv6[2 * source + 1]);
+        }
+        add(other.keys[index], other.timestamps[index], ip);
+    }
+
+    /**
+     * Кодирует столбцы в блок вместе с заголовком.
+     */
+    ByteBuffer encode() {
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            minTimestamp = Math.min(minTimestamp, timestamps[i]);
+            maxTimestamp = Math.max(maxTimestamp, timestamps[i]);
+        }
+        if (maxTimestamp - minTimestamp > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Время hits блока не умещается в одном сегменте");
+        }
+        int bodyLength = BODY_HEADER_SIZE + size * (2 * Integer.BYTES + Long.BYTES) + ipv6Size * 2 * Long.BYTES;
+        ByteBuffer block = ByteBuffer.allocate(HEADER_SIZE + bodyLength);
+        block.position(HEADER_SIZE);
+        block.putInt(size).putInt(ipv6Size).putLong(minTimestamp).putLong(maxTimestamp);
+        block.asIntBuffer().put(keys, 0, size);
+        block.position(block.position() + size * Integer.BYTES);
+        for (int i = 0; i < size; i++) {
+            block.putInt((int) (timestamps[i] - minTimestamp));
+        }
+        block.asLongBuffer().put(ips, 0, size);
+        block.position(block.position() + size * Long.BYTES);
+        block.asLongBuffer().put(ipv6, 0, ipv6Size * 2);
+
+        CRC32 crc = new CRC32();
+        crc.update(block.array(), HEADER_SIZE, bodyLength);
+        return block.putInt(0, bodyLength).putInt(Integer.BYTES, (int) crc.getValue()).position(0);
+    }
+
+    /**
+     * Читает столбцы блока, тело которого начинается с позиции body.
+     */
+    static HitColumns decode(ByteBuffer body) {
+        int count = body.getInt(0);
+        int ipv6Count = body.getInt(Integer.BYTES);
+        long minTimestamp = body.getLong(2 * Integer.BYTES);
+        HitColumns columns = new HitColumns(count);
+        columns.size = count;
+        int position = BODY_HEADER_SIZE;
+        body.slice(position, count * Integer.BYTES).asIntBuffer().get(columns.keys);
+        position += count * Integer.BYTES;
+        int[] deltas = new int[count];
+        body.slice(position, count * Integer.BYTES).asIntBuffer().get(deltas);
+        for (int i = 0; i < count; i++) {
+            columns.timestamps[i] = minTimestamp + deltas[i];
+        }
+        position += count * Integer.BYTES;
+        body.slice(position, count * Long.BYTES).asLongBuffer().get(columns.ips);
+        position += count * Long.BYTES;
+        columns.ipv6 = new long[Math.max(2 * ipv6Count, 8)];
+        columns.ipv6Size = ipv6Count;
+        body.slice(position, 2 * ipv6Count * Long.BYTES).asLongBuffer().get(columns.ipv6, 0, 2 * ipv6Count);
+        return columns;
+    }
+}
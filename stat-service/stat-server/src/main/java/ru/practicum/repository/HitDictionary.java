@@ -0,0 +1,179 @@
+package ru.practicum.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Словарь сегментного хранилища: пары (app, uri) и IP, которые не удалось упаковать в число, получают
+ * сквозные номера. Словарь хранится в файле записями [длина][CRC32][вид][строки]; оборванный хвост файла
+ * отрезается при открытии, а недописанная запись — сразу после ошибки записи.
+ *
+ * <p>Новые значения добавляет только поток записи хранилища. Читатели видят массивы значений без блокировок:
+ * размер публикуется volatile-записью после самих значений.
+ */
+class HitDictionary {
+    private static final byte KEY = 0;
+    private static final byte IP = 1;
+
+    private final FileChannel channel;
+    private final Map<String, Integer> keyIds = new HashMap<>();
+    private final Map<String, Integer> ipIds = new HashMap<>();
+    private final Map<String, int[]> keyIdsByUri = new ConcurrentHashMap<>();
+
+    private volatile String[] apps = new String[1024];
+    private volatile String[] uris = new String[1024];
+    private volatile int size;
+
+    HitDictionary(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        load();
+    }
+
+    int keyId(String app, String uri) throws IOException {
+        String key = app + '\u0000' + uri;
+        Integer id = keyIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        int newId = write(KEY, app, uri);
+        keyIds.put(key, newId);
+        return newId;
+    }
+
+    int ipId(String ip) throws IOException {
+        Integer id = ipIds.get(ip);
+        if (id != null) {
+            return id;
+        }
+        int newId = write(IP, ip, null);
+        ipIds.put(ip, newId);
+        return newId;
+    }
+
+    int size() {
+        return size;
+    }
+
+    String app(int id) {
+        return apps[id];
+    }
+
+    String uri(int id) {
+        return uris[id];
+    }
+
+    /**
+     * Номера пар (app, uri) с данным uri.
+     */
+    int[] keyIdsOf(String uri) {
+        return keyIdsByUri.getOrDefault(uri, new int[0]);
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    private int write(byte kind, String first, String second) throws IOException {
+        byte[] firstBytes = first.getBytes(StandardCharsets.UTF_8);
+        byte[] secondBytes = second != null ? second.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        ByteBuffer payload = ByteBuffer.allocate(1 + 2 * Integer.BYTES + firstBytes.length + secondBytes.length)
+                .put(kind)
+                .putInt(firstBytes.length).put(firstBytes)
+                .putInt(secondBytes.length).put(secondBytes)
+                .flip();
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        ByteBuffer record = ByteBuffer.allocate(2 * Integer.BYTES + payload.remaining())
+                .putInt(payload.remaining())
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+        long position = channel.size();
+        try {
+            ChannelIo.writeFully(channel, record, position);
+        } catch (IOException e) {
+            try {
+                channel.truncate(position);
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+            }
+            throw e;
+        }
+        return register(kind, first, second);
+    }
+
+    private int register(byte kind, String first, String second) {
+        int id = size;
+        if (id == apps.length) {
+            apps = Arrays.copyOf(apps, id * 2);
+            uris = Arrays.copyOf(uris, id * 2);
+        }
+        if (kind == KEY) {
+            apps[id] = first;
+            uris[id] = second;
+            keyIdsByUri.merge(second, new int[]{id}, (ids, added) -> {
+                int[] merged = Arrays.copyOf(ids, ids.length + 1);
+                merged[ids.length] = id;
+                return merged;
+            });
+        }
+        size = id + 1;
+        return id;
+    }
+
+    private void load() throws IOException {
+        long fileSize = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+        while (position + header.capacity() <= fileSize) {
+            header.clear();
+            ChannelIo.readFully(channel, header, position);
+            int length = header.getInt(0);
+            int checksum = header.getInt(Integer.BYTES);
+            if (length <= 0 || position + header.capacity() + length > fileSize) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            ChannelIo.readFully(channel, payload, position + header.capacity());
+            payload.flip();
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            byte kind = payload.get();
+            String first = readString(payload);
+            String second = readString(payload);
+            register(kind, first, kind == KEY ? second : null);
+            if (kind == KEY) {
+                keyIds.put(first + '\u0000' + second, size - 1);
+            } else {
+                ipIds.put(first, size - 1);
+            }
+            position += header.capacity() + length;
+        }
+        if (position < fileSize) {
+            channel.truncate(position);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
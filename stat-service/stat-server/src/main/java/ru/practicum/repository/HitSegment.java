@@ -0,0 +1,170 @@
+package ru.practicum.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Файл hits за один час: последовательность блоков {@link HitColumns}. Блоки только дописываются в конец;
+ * при открытии проверяются CRC, а оборванный или повреждённый хвост отрезается.
+ *
+ * <p>Читатели получают отображение файла в память через {@link #map()} и список блоков через
+ * {@link #blocks()}; запись и замена отображения выполняются под монитором сегмента.
+ *
+ * <p>Недописанный блок отрезается сразу после ошибки записи. Если отрезать не удалось, сегмент помечается
+ * повреждённым и не принимает записи, пока хранилище не откроет его заново с проверкой CRC.
+ */
+class HitSegment {
+    private final long hour;
+    private final Path path;
+    private final FileChannel channel;
+
+    private volatile Block[] blocks;
+    private volatile long hits;
+    private MappedByteBuffer mapped;
+    private volatile boolean broken;
+
+    private HitSegment(long hour, Path path, FileChannel channel, Block[] blocks) {
+        this.hour = hour;
+        this.path = path;
+        this.channel = channel;
+        this.blocks = blocks;
+        for (Block block : blocks) {
+            hits += block.count();
+        }
+    }
+
+    static HitSegment open(long hour, Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        List<Block> blocks = new ArrayList<>();
+        long fileSize = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HitColumns.HEADER_SIZE + HitColumns.BODY_HEADER_SIZE);
+        while (position + header.capacity() <= fileSize) {
+            header.clear();
+            ChannelIo.readFully(channel, header, position);
+            int bodyLength = header.getInt(0);
+            int checksum = header.getInt(Integer.BYTES);
+            if (bodyLength < HitColumns.BODY_HEADER_SIZE
+                    || position + HitColumns.HEADER_SIZE + bodyLength > fileSize) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(bodyLength);
+            ChannelIo.readFully(channel, body, position + HitColumns.HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(body.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            blocks.add(Block.of(position + HitColumns.HEADER_SIZE, body));
+            position += HitColumns.HEADER_SIZE + bodyLength;
+        }
+        if (position < fileSize) {
+            channel.truncate(position);
+        }
+        return new HitSegment(hour, path, channel, blocks.toArray(new Block[0]));
+    }
+
+    long hour() {
+        return hour;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long hits() {
+        return hits;
+    }
+
+    Block[] blocks() {
+        return blocks;
+    }
+
+    boolean broken() {
+        return broken;
+    }
+
+    synchronized void append(ByteBuffer block) throws IOException {
+        if (broken) {
+            throw new IOException("Сегмент " + path + " повреждён и ожидает повторного открытия");
+        }
+        long position = channel.size();
+        if (position + block.remaining() > Integer.MAX_VALUE) {
+            throw new IOException("Сегмент " + path + " превысил 2 ГБ");
+        }
+        ByteBuffer body = block.slice(HitColumns.HEADER_SIZE, block.remaining() - HitColumns.HEADER_SIZE);
+        try {
+            ChannelIo.writeFully(channel, block, position);
+        } catch (IOException e) {
+            try {
+                channel.truncate(position);
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+                broken = true;
+            }
+            throw e;
+        }
+        Block[] appended = Arrays.copyOf(blocks, blocks.length + 1);
+        appended[blocks.length] = Block.of(position + HitColumns.HEADER_SIZE, body);
+        hits += appended[blocks.length].count();
+        blocks = appended;
+    }
+
+    /**
+     * Отображение файла, покрывающее все блоки, известные на момент вызова.
+     */
+    synchronized MappedByteBuffer map() throws IOException {
+        Block[] current = blocks;
+        long end = current.length == 0 ? 0 : current[current.length - 1].end();
+        if (mapped == null || mapped.capacity() < end) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+        }
+        return mapped;
+    }
+
+    /**
+     * Атомарно переименовывает файл в target, заменяя существующий, и возвращает сегмент с новым путём на том же
+     * открытом канале; этот объект после вызова не используется.
+     */
+    synchronized HitSegment moveTo(Path target) throws IOException {
+        Files.move(path, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new HitSegment(hour, target, channel, blocks);
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Закрывает файл, сохранив отображение для читателей, получивших сегмент до закрытия.
+     */
+    synchronized void close() throws IOException {
+        map();
+        channel.close();
+    }
+
+    /**
+     * Положение и границы блока: offset указывает на начало тела после [длина][CRC32].
+     */
+    record Block(long offset, int length, int count, int ipv6Count, long minTimestamp, long maxTimestamp) {
+        static Block of(long offset, ByteBuffer body) {
+            return new Block(offset, body.limit(), body.getInt(0), body.getInt(Integer.BYTES),
+                    body.getLong(2 * Integer.BYTES), body.getLong(2 * Integer.BYTES + Long.BYTES));
+        }
+
+        long end() {
+            return offset + length;
+        }
+    }
+}
@@ -0,0 +1,670 @@
+package ru.practicum.repository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.Hit;
+import ru.practicum.model.HyperLogLog;
+import ru.practicum.model.StatTable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище hits в локальных файлах вместо таблицы statistics. Hits разложены по часовым сегментам
+ * hits-yyyyMMddHH.seg из столбцовых блоков {@link HitColumns}, пары (app, uri) и нечисловые IP закодированы
+ * словарём {@link HitDictionary}.
+ *
+ * <p>Запись выполняет один поток: он собирает hits всех ожидающих запросов в общий блок, дописывает его
+ * и вызывает force() один раз на группу, после чего запросы получают ответ.
+ *
+ * <p>Сегменты прошедших часов, записанные мелкими блоками, переписывает крупными блоками отдельный поток
+ * обслуживания; он же удаляет сегменты старше срока хранения. Блоки переписываются по одному в новый файл,
+ * не останавливая запись: под блокировкой записи только дописываются блоки, добавленные за это время,
+ * и сегмент подменяется.
+ *
+ * <p>Чтение сканирует отображённые в память сегменты: блоки вне интервала пропускаются по минимальному
+ * и максимальному времени, а в остальных столбцы номеров пар и смещений времени читаются целиком
+ * и проходятся одним циклом.
+ *
+ * <p>Если поток записи остановлен или не успел записать hits за append-timeout, append() завершается ошибкой.
+ * Запрос, который поток записи не успел взять из очереди, удаляется из неё и не будет записан позже.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "stats.storage", havingValue = "segments")
+public class HitSegmentStore {
+    private static final DateTimeFormatter SEGMENT_NAME = DateTimeFormatter.ofPattern("yyyyMMddHH");
+    private static final String SEGMENT_PREFIX = "hits-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int MAX_BLOCK_SIZE = 65_536;
+    private static final int COMPACT_MIN_BLOCKS = 8;
+    private static final int COMPACT_AVERAGE_BLOCK_SIZE = 4096;
+    private static final Duration MAINTENANCE_INTERVAL = Duration.ofMinutes(1);
+
+    private final Path directory;
+    private final boolean forceOnWrite;
+    private final int retentionMonths;
+    private final Duration appendTimeout;
+    private final HitDictionary dictionary;
+    private final ConcurrentSkipListMap<Long, HitSegment> segments = new ConcurrentSkipListMap<>();
+    private final BlockingQueue<PendingWrite> pending = new LinkedBlockingQueue<>();
+    /**
+     * Держится потоком записи на время записи группы и потоком обслуживания на время подмены или удаления сегмента.
+     */
+    private final ReentrantLock segmentLock = new ReentrantLock();
+    private final Thread writer;
+    private final Thread maintainer;
+
+    private volatile boolean running = true;
+
+    public HitSegmentStore(@Value("${stats.segments.directory:data/stat-segments}") String directory,
+                           @Value("${stats.segments.force-on-write:true}") boolean forceOnWrite,
+                           @Value("${stats.partitions.retention-months:0}") int retentionMonths,
+                           @Value("${stats.segments.append-timeout:10s}") Duration appendTimeout)
+            throws IOException {
+        this.directory = Path.of(directory);
+        this.forceOnWrite = forceOnWrite;
+        this.retentionMonths = retentionMonths;
+        this.appendTimeout = appendTimeout;
+        Files.createDirectories(this.directory);
+        this.dictionary = new HitDictionary(this.directory.resolve("dictionary.log"));
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Path file : files.filter(HitSegmentStore::isSegment).toList()) {
+                long hour = hourOf(file);
+                segments.put(hour, HitSegment.open(hour, file));
+            }
+        }
+        log.info("Открыто сегментное хранилище hits {}: {} сегментов, {} записей словаря", directory,
+                segments.size(), dictionary.size());
+        this.writer = Thread.ofPlatform().daemon().name("stat-segment-writer").unstarted(this::run);
+        writer.start();
+        this.maintainer = Thread.ofPlatform().daemon().name("stat-segment-maintenance")
+                .unstarted(this::maintainPeriodically);
+        maintainer.start();
+    }
+
+    /**
+     * Записывает hits и возвращает управление после того, как блок с ними записан на диск.
+     */
+    public void append(List<Hit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        if (!writer.isAlive()) {
+            throw new IllegalStateException("Поток записи сегментного хранилища " + directory + " остановлен");
+        }
+        PendingWrite write = new PendingWrite(hits, new CompletableFuture<>());
+        pending.add(write);
+        try {
+            write.done().get(appendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw new UncheckedIOException("Не удалось записать hits в сегментное хранилище", cause);
+            }
+            throw new IllegalStateException("Не удалось записать hits в сегментное хранилище", e.getCause());
+        } catch (TimeoutException e) {
+            boolean dequeued = pending.remove(write);
+            throw new IllegalStateException(String.format("Hits не записаны в сегментное хранилище за %s (%s, %s)",
+                    appendTimeout, writer.isAlive() ? "поток записи работает" : "поток записи остановлен",
+                    dequeued ? "запрос снят с очереди" : "запрос ещё может быть записан"), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.remove(write);
+            throw new IllegalStateException("Ожидание записи hits в сегментное хранилище прервано", e);
+        }
+    }
+
+    /**
+     * Число hits по парам (app, uri) в интервале [start, end), по убыванию.
+     */
+    public StatTable findStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        int dictionarySize = dictionary.size();
+        boolean[] selected = selectKeys(uris, dictionarySize);
+        long[] counts = new long[dictionarySize];
+        scan(start, end, (block, body, keys, deltas, from, to) -> {
+            for (int i = 0; i < keys.length; i++) {
+                int key = keys[i];
+                int delta = deltas[i];
+                if (delta >= from && delta < to && key < dictionarySize && (selected == null || selected[key])) {
+                    counts[key]++;
+                }
+            }
+        });
+        StatTable stats = new StatTable();
+        for (int key = 0; key < dictionarySize; key++) {
+            if (counts[key] > 0) {
+                stats.add(dictionary.app(key), dictionary.uri(key), counts[key]);
+            }
+        }
+        return stats.sortByHitsDescending();
+    }
+
+    /**
+     * Число уникальных IP по парам (app, uri) в интервале [start, end), по убыванию. IPv6 сравниваются
+     * по 62-битному хешу адреса.
+     *
+     * <p>Точный подсчёт собирает IP подходящих hits по парам в {@link DistinctIps}, которые сортируют и
+     * прореживают собранное при заполнении, поэтому память растёт с числом уникальных IP, а не hits. Приближённый
+     * добавляет IP в HyperLogLog пары и занимает не больше скетча на пару.
+     */
+    public StatTable findUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean approximate) {
+        return approximate ? findApproximateUniqueStats(start, end, uris) : findExactUniqueStats(start, end, uris);
+    }
+
+    private StatTable findApproximateUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        int dictionarySize = dictionary.size();
+        boolean[] selected = selectKeys(uris, dictionarySize);
+        HyperLogLog[] sketches = new HyperLogLog[dictionarySize];
+        scan(start, end, (block, body, keys, deltas, from, to) -> {
+            long[] ips = null;
+            for (int i = 0; i < keys.length; i++) {
+                int key = keys[i];
+                int delta = deltas[i];
+                if (delta < from || delta >= to || key >= dictionarySize || (selected != null && !selected[key])) {
+                    continue;
+                }
+                if (ips == null) {
+                    ips = readIps(body, block);
+                }
+                if (sketches[key] == null) {
+                    sketches[key] = new HyperLogLog();
+                }
+                sketches[key].addHash(mix(uniqueIp(ips[i], body, block)));
+            }
+        });
+        StatTable stats = new StatTable();
+        for (int key = 0; key < dictionarySize; key++) {
+            if (sketches[key] != null) {
+                stats.add(dictionary.app(key), dictionary.uri(key), sketches[key].estimate());
+            }
+        }
+        return stats.sortByHitsDescending();
+    }
+
+    private StatTable findExactUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        int dictionarySize = dictionary.size();
+        boolean[] selected = selectKeys(uris, dictionarySize);
+        DistinctIps[] ipsByKey = new DistinctIps[dictionarySize];
+        scan(start, end, (block, body, keys, deltas, from, to) -> {
+            long[] ips = null;
+            for (int i = 0; i < keys.length; i++) {
+                int key = keys[i];
+                int delta = deltas[i];
+                if (delta < from || delta >= to || key >= dictionarySize || (selected != null && !selected[key])) {
+                    continue;
+                }
+                if (ips == null) {
+                    ips = readIps(body, block);
+                }
+                if (ipsByKey[key] == null) {
+                    ipsByKey[key] = new DistinctIps();
+                }
+                ipsByKey[key].add(uniqueIp(ips[i], body, block));
+            }
+        });
+        StatTable stats = new StatTable();
+        for (int key = 0; key < dictionarySize; key++) {
+            if (ipsByKey[key] != null) {
+                stats.add(dictionary.app(key), dictionary.uri(key), ipsByKey[key].count());
+            }
+        }
+        return stats.sortByHitsDescending();
+    }
+
+    @PreDestroy
+    public void close() {
+        // Без interrupt(): прерывание потока во время записи в FileChannel закрывает канал
+        running = false;
+        LockSupport.unpark(maintainer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+            maintainer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            for (HitSegment segment : segments.values()) {
+                segment.close();
+            }
+            dictionary.close();
+        } catch (IOException e) {
+            log.error("Ошибка при закрытии сегментного хранилища {}", directory, e);
+        }
+    }
+
+    private void scan(LocalDateTime start, LocalDateTime end, BlockScan scan) {
+        long startMillis = toMillis(start);
+        long endMillis = toMillis(end);
+        if (startMillis >= endMillis) {
+            return;
+        }
+        Collection<HitSegment> overlapping = segments
+                .subMap(Math.floorDiv(startMillis, HOUR_MILLIS), true, Math.floorDiv(endMillis - 1, HOUR_MILLIS), true)
+                .values();
+        try {
+            for (HitSegment segment : overlapping) {
+                HitSegment.Block[] blocks = segment.blocks();
+                MappedByteBuffer mapped = null;
+                for (HitSegment.Block block : blocks) {
+                    if (block.maxTimestamp() < startMillis || block.minTimestamp() >= endMillis) {
+                        continue;
+                    }
+                    if (mapped == null) {
+                        mapped = segment.map();
+                    }
+                    ByteBuffer body = mapped.slice((int) block.offset(), block.length());
+                    int count = block.count();
+                    int[] keys = new int[count];
+                    int[] deltas = new int[count];
+                    body.slice(HitColumns.BODY_HEADER_SIZE, count * Integer.BYTES).asIntBuffer().get(keys);
+                    body.slice(HitColumns.BODY_HEADER_SIZE + count * Integer.BYTES, count * Integer.BYTES)
+                            .asIntBuffer().get(deltas);
+                    // Границы интервала как смещения от начала блока: внутри блока сравниваются только int
+                    long from = Math.max(startMillis - block.minTimestamp(), 0);
+                    long to = Math.min(endMillis - block.minTimestamp(), (long) Integer.MAX_VALUE);
+                    scan.accept(block, body, keys, deltas, (int) from, (int) to);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать сегмент хранилища hits", e);
+        }
+    }
+
+    private boolean[] selectKeys(List<String> uris, int dictionarySize) {
+        if (uris == null) {
+            return null;
+        }
+        boolean[] selected = new boolean[dictionarySize];
+        for (String uri : uris) {
+            for (int key : dictionary.keyIdsOf(uri)) {
+                if (key < dictionarySize) {
+                    selected[key] = true;
+                }
+            }
+        }
+        return selected;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                PendingWrite first = pending.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    List<PendingWrite> group = new ArrayList<>();
+                    group.add(first);
+                    pending.drainTo(group);
+                    write(group);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                log.error("Ошибка записи в сегментное хранилище {}", directory, e);
+            }
+        }
+        List<PendingWrite> rest = new ArrayList<>();
+        pending.drainTo(rest);
+        write(rest);
+    }
+
+    private void write(List<PendingWrite> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+        segmentLock.lock();
+        try {
+            Map<Long, HitColumns> byHour = new TreeMap<>();
+            for (PendingWrite write : group) {
+                for (Hit hit : write.hits()) {
+                    long timestamp = toMillis(hit.getTimestamp());
+                    HitColumns columns = byHour.computeIfAbsent(Math.floorDiv(timestamp, HOUR_MILLIS),
+                            hour -> new HitColumns(64));
+                    columns.add(dictionary.keyId(hit.getApp(), hit.getUri()), timestamp, packIp(hit.getIp(), columns));
+                }
+            }
+            List<HitSegment> written = new ArrayList<>();
+            for (Map.Entry<Long, HitColumns> entry : byHour.entrySet()) {
+                HitSegment segment = segment(entry.getKey());
+                for (HitColumns block : split(entry.getValue())) {
+                    segment.append(block.encode());
+                }
+                written.add(segment);
+            }
+            if (forceOnWrite) {
+                dictionary.force();
+                for (HitSegment segment : written) {
+                    segment.force();
+                }
+            }
+            group.forEach(write -> write.done().complete(null));
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось записать {} запросов в сегментное хранилище", group.size(), e);
+            group.forEach(write -> write.done().completeExceptionally(e));
+            reopenBrokenSegments();
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    /**
+     * Открывает заново сегменты, в которых не удалось отрезать недописанный блок: при открытии блоки
+     * проверяются по CRC, и оборванный хвост отрезается.
+     */
+    private void reopenBrokenSegments() {
+        for (HitSegment segment : segments.values()) {
+            if (!segment.broken()) {
+                continue;
+            }
+            try {
+                segment.close();
+                segments.put(segment.hour(), HitSegment.open(segment.hour(), segment.path()));
+                log.warn("Сегмент {} открыт заново после ошибки записи", segment.path().getFileName());
+            } catch (IOException e) {
+                log.error("Не удалось заново открыть сегмент {}", segment.path(), e);
+            }
+        }
+    }
+
+    /**
+     * Поток будится через unpark, а не interrupt: прерывание во время записи в FileChannel закрывает канал.
+     */
+    private void maintainPeriodically() {
+        while (running) {
+            try {
+                maintain();
+            } catch (RuntimeException e) {
+                log.error("Ошибка обслуживания сегментного хранилища {}", directory, e);
+            }
+            long wakeUp = System.nanoTime() + MAINTENANCE_INTERVAL.toNanos();
+            for (long left = wakeUp - System.nanoTime(); running && left > 0; left = wakeUp - System.nanoTime()) {
+                LockSupport.parkNanos(left);
+            }
+        }
+    }
+
+    /**
+     * Переписывает крупными блоками сегменты прошедших часов, записанные мелкими блоками, и удаляет сегменты
+     * старше срока хранения.
+     */
+    synchronized void maintain() {
+        long currentHour = Math.floorDiv(System.currentTimeMillis(), HOUR_MILLIS);
+        for (HitSegment segment : segments.headMap(currentHour).values()) {
+            HitSegment.Block[] blocks = segment.blocks();
+            if (running && !segment.broken() && blocks.length >= COMPACT_MIN_BLOCKS
+                    && segment.hits() / blocks.length < COMPACT_AVERAGE_BLOCK_SIZE) {
+                compact(segment);
+            }
+        }
+        if (retentionMonths > 0) {
+            LocalDateTime oldestKept = LocalDateTime.now(ZoneOffset.UTC).minusMonths(retentionMonths);
+            for (HitSegment segment : segments.headMap(Math.floorDiv(toMillis(oldestKept), HOUR_MILLIS)).values()) {
+                segmentLock.lock();
+                try {
+                    segments.remove(segment.hour());
+                    segment.close();
+                    Files.delete(segment.path());
+                    log.info("Удалён сегмент {} старше срока хранения", segment.path().getFileName());
+                } catch (IOException e) {
+                    log.error("Не удалось удалить сегмент {}", segment.path(), e);
+                } finally {
+                    segmentLock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Переписывает блоки сегмента в новый файл по одному, держа в памяти не больше одного блока каждого размера,
+     * и подменяет им сегмент под {@link #segmentLock}, дописав блоки, добавленные за время переписывания.
+     */
+    private void compact(HitSegment segment) {
+        Path compacted = segment.path().resolveSibling(segment.path().getFileName() + ".compact");
+        HitSegment.Block[] snapshot = segment.blocks();
+        try {
+            Files.deleteIfExists(compacted);
+            HitSegment replacement = HitSegment.open(segment.hour(), compacted);
+            try {
+                HitColumns block = new HitColumns(MAX_BLOCK_SIZE);
+                MappedByteBuffer mapped = segment.map();
+                for (HitSegment.Block source : snapshot) {
+                    HitColumns columns = HitColumns.decode(mapped.slice((int) source.offset(), source.length()));
+                    for (int i = 0; i < columns.size; i++) {
+                        block.addFrom(columns, i);
+                        if (block.size == MAX_BLOCK_SIZE) {
+                            replacement.append(block.encode());
+                            block = new HitColumns(MAX_BLOCK_SIZE);
+                        }
+                    }
+                }
+                if (block.size > 0) {
+                    replacement.append(block.encode());
+                }
+                replacement.force();
+
+                segmentLock.lock();
+                try {
+                    if (segments.get(segment.hour()) != segment || segment.broken()) {
+                        return;
+                    }
+                    HitSegment.Block[] current = segment.blocks();
+                    if (current.length > snapshot.length) {
+                        MappedByteBuffer tail = segment.map();
+                        for (int i = snapshot.length; i < current.length; i++) {
+                            replacement.append(HitColumns.decode(
+                                    tail.slice((int) current[i].offset(), current[i].length())).encode());
+                        }
+                        replacement.force();
+                    }
+                    HitSegment moved = replacement.moveTo(segment.path());
+                    replacement = null;
+                    segments.put(segment.hour(), moved);
+                    segment.close();
+                    log.info("Сегмент {} переписан: {} блоков вместо {}", segment.path().getFileName(),
+                            moved.blocks().length, current.length);
+                } finally {
+                    segmentLock.unlock();
+                }
+            } finally {
+                if (replacement != null) {
+                    replacement.close();
+                    Files.deleteIfExists(compacted);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Не удалось переписать сегмент {}", segment.path(), e);
+        }
+    }
+
+    private HitSegment segment(long hour) throws IOException {
+        HitSegment segment = segments.get(hour);
+        if (segment == null) {
+            String name = SEGMENT_PREFIX + SEGMENT_NAME.format(
+                    LocalDateTime.ofEpochSecond(hour * HOUR_MILLIS / 1000, 0, ZoneOffset.UTC)) + SEGMENT_SUFFIX;
+            segment = HitSegment.open(hour, directory.resolve(name));
+            segments.put(hour, segment);
+        }
+        return segment;
+    }
+
+    private long packIp(String ip, HitColumns columns) throws IOException {
+        long ipv4 = parseIpv4(ip);
+        if (ipv4 >= 0) {
+            return ipv4;
+        }
+        if (ip.indexOf(':') >= 0) {
+            try {
+                InetAddress address = InetAddress.getByName(ip);
+                ByteBuffer bytes = ByteBuffer.wrap(address.getAddress());
+                if (address instanceof Inet4Address) {
+                    return Integer.toUnsignedLong(bytes.getInt());
+                }
+                return columns.addIpv6(bytes.getLong(), bytes.getLong());
+            } catch (UnknownHostException e) {
+                log.debug("IP {} не разобран как IPv6, записывается через словарь", ip);
+            }
+        }
+        return HitColumns.DICTIONARY | dictionary.ipId(ip);
+    }
+
+    /**
+     * Разбирает IPv4 в точечной записи без обращения к DNS; возвращает -1, если строка не IPv4.
+     */
+    private static long parseIpv4(String ip) {
+        long value = 0;
+        int octets = 0;
+        int octet = -1;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c == '.') {
+                if (octet < 0 || ++octets > 4) {
+                    return -1;
+                }
+                value = value << 8 | octet;
+                octet = -1;
+            } else if (c >= '0' && c <= '9') {
+                octet = octet < 0 ? c - '0' : octet * 10 + c - '0';
+                if (octet > 255) {
+                    return -1;
+                }
+            } else {
+                return -1;
+            }
+        }
+        return octets == 4 ? value : -1;
+    }
+
+    private static long[] readIps(ByteBuffer body, HitSegment.Block block) {
+        long[] ips = new long[block.count()];
+        body.slice(HitColumns.BODY_HEADER_SIZE + 2 * block.count() * Integer.BYTES, block.count() * Long.BYTES)
+                .asLongBuffer().get(ips);
+        return ips;
+    }
+
+    private static long uniqueIp(long ip, ByteBuffer body, HitSegment.Block block) {
+        if ((ip & HitColumns.KIND_MASK) != HitColumns.IPV6) {
+            return ip;
+        }
+        int index = (int) (ip & ~HitColumns.KIND_MASK);
+        int position = HitColumns.BODY_HEADER_SIZE + block.count() * (2 * Integer.BYTES + Long.BYTES)
+                + index * 2 * Long.BYTES;
+        long hash = mix(body.getLong(position) * 31 + mix(body.getLong(position + Long.BYTES)));
+        return HitColumns.IPV6 | (hash >>> 2);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static List<HitColumns> split(HitColumns columns) {
+        if (columns.size <= MAX_BLOCK_SIZE) {
+            return List.of(columns);
+        }
+        List<HitColumns> blocks = new ArrayList<>();
+        for (int from = 0; from < columns.size; from += MAX_BLOCK_SIZE) {
+            HitColumns block = new HitColumns(Math.min(MAX_BLOCK_SIZE, columns.size - from));
+            for (int i = from; i < Math.min(from + MAX_BLOCK_SIZE, columns.size); i++) {
+                block.addFrom(columns, i);
+            }
+            blocks.add(block);
+        }
+        return blocks;
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long hourOf(Path file) {
+        String name = file.getFileName().toString();
+        LocalDateTime hour = LocalDateTime.parse(
+                name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()) + "0000",
+                DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+        return Math.floorDiv(toMillis(hour), HOUR_MILLIS);
+    }
+
+    /**
+     * Уникальные IP одной пары. Начало массива — отсортированные уникальные значения, за ними дописываются новые.
+     * Когда массив заполнен, новые значения сортируются и сливаются с началом без повторов, а массив
+     * выделяется заново вдвое больше числа уникальных, так что он не бывает больше двух таких чисел.
+     */
+    private static final class DistinctIps {
+        private long[] values = new long[16];
+        private int distinct;
+        private int size;
+
+        void add(long ip) {
+            if (size == values.length) {
+                compact();
+            }
+            values[size++] = ip;
+        }
+
+        long count() {
+            compact();
+            return distinct;
+        }
+
+        private void compact() {
+            Arrays.sort(values, distinct, size);
+            long[] merged = new long[size];
+            int count = 0;
+            int left = 0;
+            int right = distinct;
+            while (left < distinct || right < size) {
+                long next = right == size || left < distinct && values[left] <= values[right]
+                        ? values[left++] : values[right++];
+                if (count == 0 || merged[count - 1] != next) {
+                    merged[count++] = next;
+                }
+            }
+            values = Arrays.copyOf(merged, Math.max(16, 2 * count));
+            distinct = count;
+            size = count;
+        }
+    }
+
+    private record PendingWrite(List<Hit> hits, CompletableFuture<Void> done) {
+    }
+
+    @FunctionalInterface
+    private interface BlockScan {
+        void accept(HitSegment.Block block, ByteBuffer body, int[] keys, int[] deltas, int from, int to);
+    }
+}
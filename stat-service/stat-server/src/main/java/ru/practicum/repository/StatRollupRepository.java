@@ -0,0 +1,109 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.Hit;
+import ru.practicum.model.RollupGranularity;
+import ru.practicum.model.RollupSegment;
+import ru.practicum.model.StatTable;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Поминутные, почасовые и посуточные счётчики hits по (app, uri).
+ */
+@Repository
+@RequiredArgsConstructor
+public class StatRollupRepository {
+    private static final String UPSERT_ROLLUP = """
+            INSERT INTO stat_rollups (granularity, bucket, app, uri, hits) VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (granularity, bucket, app, uri) DO UPDATE SET hits = stat_rollups.hits + EXCLUDED.hits
+            """;
+    private static final String DELETE_BEFORE = "DELETE FROM stat_rollups WHERE bucket < ?";
+    private static final RollupGranularity[] LEVELS = {
+            RollupGranularity.DAY, RollupGranularity.HOUR, RollupGranularity.MINUTE
+    };
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void addHits(List<Hit> hits) {
+        Map<RollupKey, Long> increments = new TreeMap<>(RollupKey.ORDER);
+        for (Hit hit : hits) {
+            for (RollupGranularity granularity : LEVELS) {
+                RollupKey key = new RollupKey(granularity, granularity.floor(hit.getTimestamp()),
+                        hit.getApp(), hit.getUri());
+                increments.merge(key, 1L, Long::sum);
+            }
+        }
+
+        jdbcTemplate.batchUpdate(UPSERT_ROLLUP, increments.entrySet(), BATCH_SIZE, (ps, entry) -> {
+            RollupKey key = entry.getKey();
+            ps.setString(1, key.granularity().name());
+            ps.setTimestamp(2, Timestamp.valueOf(key.bucket()));
+            ps.setString(3, key.app());
+            ps.setString(4, key.uri());
+            ps.setLong(5, entry.getValue());
+        });
+    }
+
+    /**
+     * Удаляет счётчики бакетов, начавшихся раньше указанного времени.
+     */
+    public int deleteBefore(LocalDateTime time) {
+        return jdbcTemplate.update(DELETE_BEFORE, Timestamp.valueOf(time));
+    }
+
+    /**
+     * Считает hits в интервале [start, end), складывая самые крупные целиком покрытые бакеты
+     * и читая сырые строки statistics только на неровных краях интервала.
+     */
+    public StatTable findStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        StatTable stats = new StatTable();
+        List<RollupSegment> segments = RollupSegment.plan(start, end, LEVELS);
+        if (segments.isEmpty()) {
+            return stats;
+        }
+
+        String uriFilter = uris == null ? "" : " AND uri IN (" + String.join(", ", Collections.nCopies(uris.size(), "?")) + ")";
+        List<Object> args = new ArrayList<>();
+        List<String> parts = new ArrayList<>();
+        for (RollupSegment segment : segments) {
+            if (segment.isRaw()) {
+                parts.add("SELECT app, uri, COUNT(*) AS hits FROM statistics "
+                        + "WHERE timestamp >= ? AND timestamp < ?" + uriFilter + " GROUP BY app, uri");
+            } else {
+                parts.add("SELECT app, uri, SUM(hits) AS hits FROM stat_rollups "
+                        + "WHERE granularity = ? AND bucket >= ? AND bucket < ?" + uriFilter + " GROUP BY app, uri");
+                args.add(segment.getGranularity().name());
+            }
+            args.add(Timestamp.valueOf(segment.getFrom()));
+            args.add(Timestamp.valueOf(segment.getTo()));
+            if (uris != null) {
+                args.addAll(uris);
+            }
+        }
+
+        String sql = "SELECT s.app, s.uri, SUM(s.hits) AS total FROM (" + String.join(" UNION ALL ", parts) + ") s "
+                + "GROUP BY s.app, s.uri ORDER BY total DESC";
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> stats.add(rs.getString(1), rs.getString(2), rs.getLong(3)),
+                args.toArray());
+        return stats;
+    }
+
+    private record RollupKey(RollupGranularity granularity, LocalDateTime bucket, String app, String uri) {
+        private static final Comparator<RollupKey> ORDER = Comparator.comparing(RollupKey::granularity)
+                .thenComparing(RollupKey::bucket)
+                .thenComparing(RollupKey::app)
+                .thenComparing(RollupKey::uri);
+    }
+}
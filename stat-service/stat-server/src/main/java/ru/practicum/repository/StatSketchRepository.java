@@ -0,0 +1,105 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.model.HyperLogLog;
+import ru.practicum.model.RollupGranularity;
+import ru.practicum.model.SketchKey;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class StatSketchRepository {
+    private static final String INSERT_EMPTY = """
+            INSERT INTO stat_sketches (granularity, bucket, app, uri, registers) VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (granularity, bucket, app, uri) DO NOTHING
+            """;
+    private static final String SELECT_FOR_UPDATE = """
+            SELECT registers FROM stat_sketches
+            WHERE granularity = ? AND bucket = ? AND app = ? AND uri = ?
+            FOR UPDATE
+            """;
+    private static final String UPDATE = """
+            UPDATE stat_sketches SET registers = ?
+            WHERE granularity = ? AND bucket = ? AND app = ? AND uri = ?
+            """;
+    private static final String DELETE_BEFORE = "DELETE FROM stat_sketches WHERE bucket < ?";
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Объединяет скетчи с сохранёнными; ключи обрабатываются в фиксированном порядке, чтобы параллельные
+     * слияния не взаимоблокировались.
+     */
+    @Transactional
+    public void merge(Map<SketchKey, HyperLogLog> sketches) {
+        List<SketchKey> keys = new ArrayList<>(sketches.keySet());
+        keys.sort(SketchKey.ORDER);
+        byte[] empty = new HyperLogLog().toBytes();
+
+        jdbcTemplate.batchUpdate(INSERT_EMPTY, keys, BATCH_SIZE, (ps, key) -> {
+            ps.setString(1, key.getGranularity().name());
+            ps.setTimestamp(2, Timestamp.valueOf(key.getBucket()));
+            ps.setString(3, key.getApp());
+            ps.setString(4, key.getUri());
+            ps.setBytes(5, empty);
+        });
+
+        for (SketchKey key : keys) {
+            Object[] keyArgs = {key.getGranularity().name(), Timestamp.valueOf(key.getBucket()), key.getApp(), key.getUri()};
+            HyperLogLog stored = HyperLogLog.fromBytes(jdbcTemplate.queryForObject(SELECT_FOR_UPDATE, byte[].class, keyArgs));
+            stored.merge(sketches.get(key));
+            jdbcTemplate.update(UPDATE, stored.toBytes(), keyArgs[0], keyArgs[1], keyArgs[2], keyArgs[3]);
+        }
+    }
+
+    /**
+     * Удаляет скетчи бакетов, начавшихся раньше указанного времени.
+     */
+    public int deleteBefore(LocalDateTime time) {
+        return jdbcTemplate.update(DELETE_BEFORE, Timestamp.valueOf(time));
+    }
+
+    public void mergeStoredSketches(RollupGranularity granularity, LocalDateTime from, LocalDateTime to, List<String> uris,
+                                    Map<String, Map<String, HyperLogLog>> target) {
+        List<Object> args = new ArrayList<>(List.of(granularity.name(), Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        String sql = "SELECT app, uri, registers FROM stat_sketches WHERE granularity = ? AND bucket >= ? AND bucket < ?"
+                + uriFilter(uris, args);
+        jdbcTemplate.query(sql, rs -> {
+            sketch(target, rs.getString("app"), rs.getString("uri"))
+                    .merge(HyperLogLog.fromBytes(rs.getBytes("registers")));
+        }, args.toArray());
+    }
+
+    public void mergeRawIps(LocalDateTime from, LocalDateTime to, List<String> uris,
+                            Map<String, Map<String, HyperLogLog>> target) {
+        List<Object> args = new ArrayList<>(List.of(Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        String sql = "SELECT DISTINCT app, uri, ip FROM statistics WHERE timestamp >= ? AND timestamp < ?"
+                + uriFilter(uris, args);
+        jdbcTemplate.query(sql, rs -> {
+            sketch(target, rs.getString("app"), rs.getString("uri")).add(rs.getString("ip"));
+        }, args.toArray());
+    }
+
+    private static String uriFilter(List<String> uris, List<Object> args) {
+        if (uris == null) {
+            return "";
+        }
+        args.addAll(uris);
+        return " AND uri IN (" + String.join(", ", Collections.nCopies(uris.size(), "?")) + ")";
+    }
+
+    private static HyperLogLog sketch(Map<String, Map<String, HyperLogLog>> target, String app, String uri) {
+        return target.computeIfAbsent(app, a -> new HashMap<>()).computeIfAbsent(uri, u -> new HyperLogLog());
+    }
+}
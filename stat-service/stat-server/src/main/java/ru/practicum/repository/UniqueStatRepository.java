@@ -0,0 +1,40 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.StatTable;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Точное число уникальных IP по (app, uri) из сырых строк statistics.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UniqueStatRepository {
+    private static final String FIND_UNIQUE_STATS = "SELECT app, uri, COUNT(DISTINCT ip) AS hits FROM statistics "
+            + "WHERE timestamp BETWEEN ? AND ?%s GROUP BY app, uri ORDER BY hits DESC";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatTable findStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(start));
+        args.add(Timestamp.valueOf(end));
+        String uriFilter = "";
+        if (uris != null) {
+            uriFilter = " AND uri IN (" + String.join(", ", Collections.nCopies(uris.size(), "?")) + ")";
+            args.addAll(uris);
+        }
+        StatTable stats = new StatTable();
+        jdbcTemplate.query(String.format(FIND_UNIQUE_STATS, uriFilter),
+                (RowCallbackHandler) rs -> stats.add(rs.getString(1), rs.getString(2), rs.getLong(3)), args.toArray());
+        return stats;
+    }
+}
@@ -0,0 +1,72 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import ru.practicum.HitBatchDto;
+import ru.practicum.HitDto;
+import ru.practicum.exception.ValidationRequestException;
+import ru.practicum.mapper.HitMapper;
+import ru.practicum.model.Hit;
+import ru.practicum.model.StatTable;
+import ru.practicum.repository.HitSegmentStore;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * StatService поверх {@link HitSegmentStore} при stats.storage=segments. Уникальные IP считаются
+ * сканированием: точно или, при approximate, через HyperLogLog с той же погрешностью, что и в режиме jdbc.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "stats.storage", havingValue = "segments")
+public class SegmentStatServiceImpl implements StatService {
+    private final HitSegmentStore hitSegmentStore;
+    private final Timer saveTimer;
+    private final Counter savedHits;
+
+    public SegmentStatServiceImpl(HitSegmentStore hitSegmentStore, MeterRegistry meterRegistry) {
+        this.hitSegmentStore = hitSegmentStore;
+        this.saveTimer = meterRegistry.timer("stat.hits.save", "mode", "segments");
+        this.savedHits = meterRegistry.counter("stat.hits.saved", "mode", "segments");
+    }
+
+    @Override
+    public void addHit(HitDto hitDto) {
+        log.debug("Сохраняем hit: {}", hitDto);
+        saveHits(List.of(HitMapper.toHit(hitDto)));
+    }
+
+    @Override
+    public void addHits(List<HitDto> hitDtos) {
+        saveHits(hitDtos.stream().map(HitMapper::toHit).toList());
+    }
+
+    @Override
+    public void addHitBatch(HitBatchDto batch) {
+        saveHits(HitMapper.toHits(batch));
+    }
+
+    private void saveHits(List<Hit> hits) {
+        saveTimer.record(() -> hitSegmentStore.append(hits));
+        savedHits.increment(hits.size());
+    }
+
+    @Override
+    public StatTable getStats(LocalDateTime start, LocalDateTime end, String[] uris, boolean unique,
+                                  boolean approximate) {
+        if (start.isAfter(end)) {
+            throw new ValidationRequestException("Параметр 'start' не может быть позже параметра 'end'.");
+        }
+
+        List<String> uriList = uris == null || uris.length == 0 ? null : List.of(uris);
+        // Время hits хранится с точностью до секунды, поэтому [start, end] == [start, end + 1s).
+        return unique
+                ? hitSegmentStore.findUniqueStats(start, end.plusSeconds(1), uriList, approximate)
+                : hitSegmentStore.findStats(start, end.plusSeconds(1), uriList);
+    }
+}
@@ -0,0 +1,152 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.repository.StatRollupRepository;
+import ru.practicum.repository.StatSketchRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Создаёт помесячные партиции statistics заранее и удаляет партиции старше срока хранения вместе со счётчиками
+ * и скетчами уникальных IP за те же месяцы.
+ */
+@Slf4j
+@Service
+public class StatPartitionService {
+    private static final Pattern PARTITION_NAME = Pattern.compile("statistics_y(\\d{4})m(\\d{2})");
+    private static final String FIND_PARTITIONS = """
+            SELECT c.relname FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = 'statistics'
+            """;
+    private static final String TABLE_EXISTS = "SELECT to_regclass(?) IS NOT NULL";
+    private static final String DEFAULT_HAS_ROWS = """
+            SELECT EXISTS (SELECT 1 FROM statistics_default WHERE timestamp >= ? AND timestamp < ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StatRollupRepository statRollupRepository;
+    private final StatSketchRepository statSketchRepository;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public StatPartitionService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                StatRollupRepository statRollupRepository,
+                                StatSketchRepository statSketchRepository,
+                                @Value("${stats.partitions.months-ahead:2}") int monthsAhead,
+                                @Value("${stats.partitions.retention-months:0}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.statRollupRepository = statRollupRepository;
+        this.statSketchRepository = statSketchRepository;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!isPartitioned()) {
+            log.warn("Таблица statistics создана без партиционирования, обслуживание партиций отключено");
+            return;
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS statistics_default PARTITION OF statistics DEFAULT");
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${stats.partitions.maintenance-cron:0 0 * * * *}")
+    public void maintainPartitions() {
+        if (!isPartitioned()) {
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            createPartition(current.plusMonths(i));
+        }
+        if (retentionMonths > 0) {
+            dropPartitionsBefore(current.minusMonths(retentionMonths));
+        }
+    }
+
+    private boolean isPartitioned() {
+        List<String> kinds = jdbcTemplate.queryForList(
+                "SELECT relkind::text FROM pg_class WHERE relname = 'statistics'", String.class);
+        return kinds.contains("p");
+    }
+
+    /**
+     * Создаёт партицию месяца. Если hits этого месяца уже попали в statistics_default, партиция по умолчанию
+     * отсоединяется на время создания, а её строки за месяц переносятся в новую партицию в той же транзакции.
+     */
+    private void createPartition(YearMonth month) {
+        String name = partitionName(month);
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(TABLE_EXISTS, Boolean.class, name))) {
+                    return;
+                }
+                String create = String.format("CREATE TABLE %s PARTITION OF statistics "
+                        + "FOR VALUES FROM ('%s') TO ('%s')", name, from, to);
+                if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(DEFAULT_HAS_ROWS, Boolean.class, from, to))) {
+                    jdbcTemplate.execute(create);
+                    return;
+                }
+                jdbcTemplate.execute("ALTER TABLE statistics DETACH PARTITION statistics_default");
+                jdbcTemplate.execute(create);
+                int moved = jdbcTemplate.update("INSERT INTO " + name + " SELECT * FROM statistics_default "
+                        + "WHERE timestamp >= ? AND timestamp < ?", from, to);
+                jdbcTemplate.update("DELETE FROM statistics_default WHERE timestamp >= ? AND timestamp < ?", from, to);
+                jdbcTemplate.execute("ALTER TABLE statistics ATTACH PARTITION statistics_default DEFAULT");
+                log.info("В партицию {} перенесено {} hits из statistics_default", name, moved);
+            });
+        } catch (Exception e) {
+            log.error("Не удалось создать партицию {}: hits за этот месяц останутся в statistics_default", name, e);
+        }
+    }
+
+    /**
+     * Удаляет партиции, hits в statistics_default, счётчики и скетчи за месяцы до oldestKept.
+     */
+    private void dropPartitionsBefore(YearMonth oldestKept) {
+        for (String name : jdbcTemplate.queryForList(FIND_PARTITIONS, String.class)) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (month.isBefore(oldestKept)) {
+                log.info("Удаление партиции {} старше срока хранения", name);
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+            }
+        }
+        LocalDateTime boundary = oldestKept.atDay(1).atStartOfDay();
+        int defaultHits = jdbcTemplate.update("DELETE FROM statistics_default WHERE timestamp < ?",
+                Timestamp.valueOf(boundary));
+        int rollups = statRollupRepository.deleteBefore(boundary);
+        int sketches = statSketchRepository.deleteBefore(boundary);
+        if (defaultHits + rollups + sketches > 0) {
+            log.info("Удалено старше {}: {} hits из statistics_default, {} счётчиков, {} скетчей уникальных IP",
+                    oldestKept, defaultHits, rollups, sketches);
+        }
+    }
+
+    private static String partitionName(YearMonth month) {
+        return String.format("statistics_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+}
@@ -1,7 +1,8 @@
 package ru.practicum.service;
 
+import ru.practicum.HitBatchDto;
 import ru.practicum.HitDto;
-import ru.practicum.StatDto;
+import ru.practicum.model.StatTable;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -9,5 +10,9 @@ import java.util.List;
 public interface StatService {
     void addHit(HitDto hitDto);
 
-    List<StatDto> getStats(LocalDateTime start, LocalDateTime end, String[] uris, boolean unique);
+    void addHits(List<HitDto> hitDtos);
+
+    void addHitBatch(HitBatchDto batch);
+
+    StatTable getStats(LocalDateTime start, LocalDateTime end, String[] uris, boolean unique, boolean approximate);
 }
\ No newline at end of file
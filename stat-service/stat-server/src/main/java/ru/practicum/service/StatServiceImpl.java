@@ -1,55 +1,113 @@
 package ru.practicum.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.HitBatchDto;
 import ru.practicum.HitDto;
-import ru.practicum.StatDto;
 import ru.practicum.exception.ValidationRequestException;
-import ru.practicum.mapper.StatMapper;
-import ru.practicum.model.Stat;
+import ru.practicum.mapper.HitMapper;
+import ru.practicum.model.Hit;
+import ru.practicum.model.StatTable;
+import ru.practicum.repository.HitBatchRepository;
 import ru.practicum.repository.StatRepository;
+import ru.practicum.repository.StatRollupRepository;
+import ru.practicum.repository.UniqueStatRepository;
 
 import java.time.LocalDateTime;
-import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 import static ru.practicum.mapper.HitMapper.toHit;
+import static ru.practicum.util.TransactionCallbacks.afterCommit;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
+@ConditionalOnProperty(name = "stats.storage", havingValue = "jdbc", matchIfMissing = true)
 public class StatServiceImpl implements StatService {
     private final StatRepository statRepository;
+    private final HitBatchRepository hitBatchRepository;
+    private final StatRollupRepository statRollupRepository;
+    private final StatSketchService statSketchService;
+    private final UniqueStatRepository uniqueStatRepository;
+    private final Timer singleSaveTimer;
+    private final Timer batchSaveTimer;
+    private final Counter singleSavedHits;
+    private final Counter batchSavedHits;
+
+    public StatServiceImpl(StatRepository statRepository, HitBatchRepository hitBatchRepository,
+                           StatRollupRepository statRollupRepository, StatSketchService statSketchService,
+                           UniqueStatRepository uniqueStatRepository, MeterRegistry meterRegistry) {
+        this.statRepository = statRepository;
+        this.hitBatchRepository = hitBatchRepository;
+        this.statRollupRepository = statRollupRepository;
+        this.statSketchService = statSketchService;
+        this.uniqueStatRepository = uniqueStatRepository;
+        this.singleSaveTimer = meterRegistry.timer("stat.hits.save", "mode", "single");
+        this.batchSaveTimer = meterRegistry.timer("stat.hits.save", "mode", "batch");
+        this.singleSavedHits = meterRegistry.counter("stat.hits.saved", "mode", "single");
+        this.batchSavedHits = meterRegistry.counter("stat.hits.saved", "mode", "batch");
+    }
 
     @Override
+    @Transactional
     public void addHit(HitDto hitDto) {
         log.debug("Сохраняем hit: {}", hitDto);
-        statRepository.save(toHit(hitDto));
+        singleSaveTimer.record(() -> {
+            Hit hit = statRepository.save(toHit(hitDto));
+            statRollupRepository.addHits(List.of(hit));
+            afterCommit(() -> statSketchService.addHits(List.of(hit)));
+        });
+        singleSavedHits.increment();
+    }
+
+    @Override
+    @Transactional
+    public void addHits(List<HitDto> hitDtos) {
+        saveHits(hitDtos.stream().map(HitMapper::toHit).toList());
     }
 
     @Override
-    public List<StatDto> getStats(LocalDateTime start, LocalDateTime end, String[] uris, boolean unique) {
-        List<Stat> stats;
+    @Transactional
+    public void addHitBatch(HitBatchDto batch) {
+        saveHits(HitMapper.toHits(batch));
+    }
 
+    private void saveHits(List<Hit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        hitBatchRepository.saveAll(hits);
+        statRollupRepository.addHits(hits);
+        // Скетчи не откатываются вместе с транзакцией, поэтому hits попадают в них только после коммита.
+        afterCommit(() -> statSketchService.addHits(hits));
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        batchSaveTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        batchSavedHits.increment(hits.size());
+        log.debug("Сохранено {} hits за {} мс ({} строк/с)", hits.size(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                hits.size() * TimeUnit.SECONDS.toNanos(1) / Math.max(elapsedNanos, 1));
+    }
+
+    @Override
+    public StatTable getStats(LocalDateTime start, LocalDateTime end, String[] uris, boolean unique,
+                              boolean approximate) {
         if (start.isAfter(end)) {
             throw new ValidationRequestException("Параметр 'start' не может быть позже параметра 'end'.");
         }
 
-        if (uris == null || uris.length == 0) {
-            stats = unique
-                    ? statRepository.findAllStatsUnique(start, end)
-                    : statRepository.findAllStats(start, end);
-        } else {
-            List<String> uriList = List.of(uris);
-            stats = unique
-                    ? statRepository.findStatsByUrisUnique(uriList, start, end)
-                    : statRepository.findStatsByUris(uriList, start, end);
+        List<String> uriList = uris == null || uris.length == 0 ? null : List.of(uris);
+        if (!unique) {
+            // Время hits хранится с точностью до секунды, поэтому [start, end] == [start, end + 1s).
+            return statRollupRepository.findStats(start, end.plusSeconds(1), uriList);
+        } else if (approximate) {
+            return statSketchService.getUniqueStats(start, end.plusSeconds(1), uriList);
         }
-
-        return stats.isEmpty()
-                ? Collections.emptyList()
-                : stats.stream().map(StatMapper::toStatDto).collect(Collectors.toList());
+        return uniqueStatRepository.findStats(start, end, uriList);
     }
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.practicum.model.Hit;
+import ru.practicum.model.HyperLogLog;
+import ru.practicum.model.RollupGranularity;
+import ru.practicum.model.RollupSegment;
+import ru.practicum.model.SketchKey;
+import ru.practicum.model.StatTable;
+import ru.practicum.repository.StatSketchRepository;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ведёт HyperLogLog-скетчи уникальных IP по (app, uri) в почасовых и посуточных бакетах.
+ * Новые hits копятся в памяти и периодически сливаются со скетчами в stat_sketches.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StatSketchService {
+    private static final RollupGranularity[] LEVELS = {RollupGranularity.DAY, RollupGranularity.HOUR};
+
+    private final StatSketchRepository statSketchRepository;
+
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Map<SketchKey, HyperLogLog> pending = new ConcurrentHashMap<>();
+    private volatile Map<SketchKey, HyperLogLog> flushing = Map.of();
+
+    public void addHits(List<Hit> hits) {
+        swapLock.readLock().lock();
+        try {
+            for (Hit hit : hits) {
+                for (RollupGranularity granularity : LEVELS) {
+                    SketchKey key = new SketchKey(granularity, granularity.floor(hit.getTimestamp()),
+                            hit.getApp(), hit.getUri());
+                    pending.computeIfAbsent(key, k -> new HyperLogLog()).add(hit.getIp());
+                }
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Оценивает число уникальных IP в интервале [start, end) со стандартной ошибкой {@link HyperLogLog#STANDARD_ERROR}.
+     *
+     * <p>Скетчи в памяти читаются раньше базы и в порядке pending, flushing: скетч, сохранённый сброшенным
+     * между чтениями, попадёт в ответ из базы, а повторное слияние одного скетча ничего не меняет.
+     */
+    public StatTable getUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        List<RollupSegment> segments = RollupSegment.plan(start, end, LEVELS);
+        Map<String, Map<String, HyperLogLog>> merged = new HashMap<>();
+        Map<SketchKey, HyperLogLog> pendingSnapshot = pending;
+        Map<SketchKey, HyperLogLog> flushingSnapshot = flushing;
+        for (RollupSegment segment : segments) {
+            if (!segment.isRaw()) {
+                mergeInMemory(pendingSnapshot, segment, uris, merged);
+                mergeInMemory(flushingSnapshot, segment, uris, merged);
+            }
+        }
+        for (RollupSegment segment : segments) {
+            if (segment.isRaw()) {
+                statSketchRepository.mergeRawIps(segment.getFrom(), segment.getTo(), uris, merged);
+            } else {
+                statSketchRepository.mergeStoredSketches(segment.getGranularity(), segment.getFrom(), segment.getTo(),
+                        uris, merged);
+            }
+        }
+
+        StatTable stats = new StatTable();
+        merged.forEach((app, sketches) -> sketches.forEach((uri, sketch) ->
+                stats.add(app, uri, sketch.estimate())));
+        return stats.sortByHitsDescending();
+    }
+
+    @Scheduled(fixedDelayString = "${stats.sketches.flush-interval-ms:5000}")
+    public void flush() {
+        swapLock.writeLock().lock();
+        try {
+            flushing = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        if (flushing.isEmpty()) {
+            return;
+        }
+
+        try {
+            statSketchRepository.merge(flushing);
+            log.debug("Сохранено {} скетчей уникальных IP", flushing.size());
+        } catch (Exception e) {
+            log.error("Не удалось сохранить {} скетчей уникальных IP", flushing.size(), e);
+            addBack(flushing);
+        } finally {
+            flushing = Map.of();
+        }
+    }
+
+    private void addBack(Map<SketchKey, HyperLogLog> sketches) {
+        swapLock.readLock().lock();
+        try {
+            sketches.forEach((key, sketch) -> pending.computeIfAbsent(key, k -> new HyperLogLog()).merge(sketch));
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private static void mergeInMemory(Map<SketchKey, HyperLogLog> sketches, RollupSegment segment, List<String> uris,
+                                      Map<String, Map<String, HyperLogLog>> target) {
+        sketches.forEach((key, sketch) -> {
+            if (key.getGranularity() == segment.getGranularity()
+                    && !key.getBucket().isBefore(segment.getFrom())
+                    && key.getBucket().isBefore(segment.getTo())
+                    && (uris == null || uris.contains(key.getUri()))) {
+                target.computeIfAbsent(key.getApp(), a -> new HashMap<>())
+                        .computeIfAbsent(key.getUri(), u -> new HyperLogLog())
+                        .merge(sketch);
+            }
+        });
+    }
+}
@@ -1,2 +1,4 @@
 DELETE FROM statistics;
+DELETE FROM stat_rollups;
+DELETE FROM stat_sketches;
 ALTER TABLE statistics ALTER COLUMN id RESTART WITH 1;
\ No newline at end of file
@@ -3,6 +3,27 @@ CREATE TABLE IF NOT EXISTS statistics (
   app VARCHAR(255) NOT NULL,
   uri VARCHAR(255) NOT NULL,
   ip VARCHAR(40) NOT NULL,
-  timestamp TIMESTAMP WITHOUT TIME ZONE,
-  CONSTRAINT pk_stat PRIMARY KEY (id)
-);
\ No newline at end of file
+  timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  CONSTRAINT pk_stat PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE INDEX IF NOT EXISTS idx_statistics_uri_timestamp ON statistics (uri, timestamp);
+CREATE INDEX IF NOT EXISTS idx_statistics_timestamp ON statistics (timestamp);
+
+CREATE TABLE IF NOT EXISTS stat_rollups (
+  granularity VARCHAR(10) NOT NULL,
+  bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  app VARCHAR(255) NOT NULL,
+  uri VARCHAR(255) NOT NULL,
+  hits BIGINT NOT NULL,
+  CONSTRAINT pk_stat_rollup PRIMARY KEY (granularity, bucket, app, uri)
+);
+
+CREATE TABLE IF NOT EXISTS stat_sketches (
+  granularity VARCHAR(10) NOT NULL,
+  bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  app VARCHAR(255) NOT NULL,
+  uri VARCHAR(255) NOT NULL,
+  registers BYTEA NOT NULL,
+  CONSTRAINT pk_stat_sketch PRIMARY KEY (granularity, bucket, app, uri)
+);
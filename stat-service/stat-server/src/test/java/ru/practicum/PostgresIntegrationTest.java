@@ -0,0 +1,56 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Основа интеграционных тестов на PostgreSQL: партиционирование, EXPLAIN и блокировки в H2 не проверить.
+ *
+ * <p>База берётся из TEST_POSTGRES_URL (с TEST_POSTGRES_USER и TEST_POSTGRES_PASSWORD), иначе запускается
+ * контейнер, если доступен Docker. Без базы тесты пропускаются ещё до создания контекста.
+ */
+@ExtendWith(PostgresIntegrationTest.RequirePostgres.class)
+public abstract class PostgresIntegrationTest {
+    private static final String UNAVAILABLE = "PostgreSQL недоступен: задайте TEST_POSTGRES_URL или запустите Docker";
+    private static final Database DATABASE = Database.find();
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        if (DATABASE != null) {
+            registry.add("spring.datasource.url", DATABASE::url);
+            registry.add("spring.datasource.username", DATABASE::username);
+            registry.add("spring.datasource.password", DATABASE::password);
+        }
+    }
+
+    static class RequirePostgres implements ExecutionCondition {
+        @Override
+        public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+            return DATABASE != null
+                    ? ConditionEvaluationResult.enabled("PostgreSQL: " + DATABASE.url())
+                    : ConditionEvaluationResult.disabled(UNAVAILABLE);
+        }
+    }
+
+    private record Database(String url, String username, String password) {
+        static Database find() {
+            String url = System.getenv("TEST_POSTGRES_URL");
+            if (url != null) {
+                return new Database(url, System.getenv().getOrDefault("TEST_POSTGRES_USER", "root"),
+                        System.getenv().getOrDefault("TEST_POSTGRES_PASSWORD", ""));
+            }
+            if (!DockerClientFactory.instance().isDockerAvailable()) {
+                return null;
+            }
+            PostgreSQLContainer<?> container = new PostgreSQLContainer<>("postgres:14-alpine");
+            container.start();
+            return new Database(container.getJdbcUrl(), container.getUsername(), container.getPassword());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ru.practicum.mapper;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.HitBatchDto;
+import ru.practicum.model.Hit;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HitMapperTest {
+    @Test
+    void batchTimestampsAreTruncatedToSeconds() {
+        LocalDateTime second = LocalDateTime.of(2026, 10, 18, 12, 0, 59);
+        long millis = second.toEpochSecond(ZoneOffset.UTC) * 1000;
+        HitBatchDto batch = HitBatchDto.builder()
+                .apps(List.of("ewm-main-service"))
+                .uris(List.of("/events"))
+                .appIndexes(new int[]{0, 0, 0})
+                .uriIndexes(new int[]{0, 0, 0})
+                .ips(List.of("10.0.0.1", "10.0.0.2", "10.0.0.3"))
+                .timestamps(new long[]{millis, millis + 1, millis + 999})
+                .build();
+
+        assertThat(HitMapper.toHits(batch)).extracting(Hit::getTimestamp).containsOnly(second);
+    }
+
+    @Test
+    void timestampsBeforeEpochAreTruncatedDown() {
+        HitBatchDto batch = HitBatchDto.builder()
+                .apps(List.of("ewm-main-service"))
+                .uris(List.of("/events"))
+                .appIndexes(new int[]{0})
+                .uriIndexes(new int[]{0})
+                .ips(List.of("10.0.0.1"))
+                .timestamps(new long[]{-1})
+                .build();
+
+        assertThat(HitMapper.toHits(batch)).extracting(Hit::getTimestamp)
+                .containsExactly(LocalDateTime.of(1969, 12, 31, 23, 59, 59));
+    }
+}
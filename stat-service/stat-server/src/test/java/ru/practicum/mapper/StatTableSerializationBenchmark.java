@@ -0,0 +1,110 @@
+package ru.practicum.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.practicum.StatDto;
+import ru.practicum.model.StatTable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает стадию отображения и сериализации ответа /stats: строки результата запроса превращаются
+ * в JSON через StatTable и {@link StatTableSerializer} или, как раньше, через проекции Stat, список StatDto
+ * и сериализацию бинов Jackson. Обращение к базе в замер не входит: строки заранее лежат в столбцах,
+ * как их отдаёт ResultSet.
+ *
+ * <p>Запуск:
+ * <pre>
+ * mvn -pl stat-service/stat-server -am test-compile dependency:build-classpath \
+ *     -Dmdep.includeScope=test -Dmdep.outputFile=target/test-classpath.txt
+ * java -cp stat-service/stat-server/target/test-classes:stat-service/stat-server/target/classes:$(cat \
+ *     stat-service/stat-server/target/test-classpath.txt) ru.practicum.mapper.StatTableSerializationBenchmark
+ * </pre>
+ *
+ * <p>На 100 000 строк StatTable: 6.35 мс и 4.2 МБ на ответ, список StatDto: 9.24 мс и 8.9 МБ; на 100 строк
+ * 6.3 и 7.6 мкс.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatTableSerializationBenchmark {
+    @Param({"100", "10000", "100000"})
+    private int rows;
+
+    private String[] apps;
+    private String[] uris;
+    private long[] hits;
+    private ObjectMapper objectMapper;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StatTableSerializationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    @Setup
+    public void setUp() {
+        apps = new String[rows];
+        uris = new String[rows];
+        hits = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            // Каждая строка ResultSet — новый экземпляр String, как после чтения из драйвера
+            apps[i] = new String(i % 10 == 0 ? "ewm-admin" : "ewm-main-service");
+            uris[i] = "/events/" + i;
+            hits[i] = rows - i;
+        }
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .serializerByType(StatTable.class, new StatTableSerializer())
+                .build();
+    }
+
+    @Benchmark
+    public void statTable() throws IOException {
+        StatTable table = new StatTable();
+        for (int i = 0; i < rows; i++) {
+            table.add(apps[i], uris[i], hits[i]);
+        }
+        objectMapper.writeValue(OutputStream.nullOutputStream(), table);
+    }
+
+    @Benchmark
+    public void dtoList() throws IOException {
+        List<StatRow> projections = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            projections.add(new StatRow(apps[i], uris[i], hits[i]));
+        }
+        List<StatDto> dtos = projections.stream()
+                .map(row -> StatDto.builder().app(row.app()).uri(row.uri()).hits(row.hits()).build())
+                .toList();
+        objectMapper.writeValue(OutputStream.nullOutputStream(), dtos);
+    }
+
+    /**
+     * Прежняя проекция Stat(app, uri, hits) с hits в Long.
+     */
+    private record StatRow(String app, String uri, Long hits) {
+    }
+}
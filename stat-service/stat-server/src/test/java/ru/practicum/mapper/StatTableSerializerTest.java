@@ -0,0 +1,64 @@
+package ru.practicum.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.practicum.StatDto;
+import ru.practicum.model.StatTable;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * StatTable должна сериализоваться байт в байт так же, как прежний список StatDto, который строился из
+ * проекций (app, uri, hits) через StatMapper.
+ */
+@JsonTest
+class StatTableSerializerTest {
+    private static final List<Row> ROWS = List.of(
+            new Row("ewm-main-service", "/events", 1_000_000_000_000L),
+            new Row("ewm-main-service", "/events/1", 42),
+            new Row("ewm-main-service", "/события/2?text=\"concert\"&path=C:\\tmp", 7),
+            new Row("ewm-admin", "/events/\t\u0001", 0));
+
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    @Test
+    void jsonMatchesDtoList() throws Exception {
+        assertThat(objectMapper.writeValueAsBytes(table(ROWS))).isEqualTo(objectMapper.writeValueAsBytes(dtos(ROWS)));
+    }
+
+    @Test
+    void emptyTableMatchesEmptyDtoList() throws Exception {
+        assertThat(objectMapper.writeValueAsString(table(List.of()))).isEqualTo("[]");
+    }
+
+    @Test
+    void smileMatchesDtoList() throws Exception {
+        ObjectMapper smile = objectMapperBuilder.build().copyWith(new SmileFactory());
+
+        assertThat(smile.writeValueAsBytes(table(ROWS))).isEqualTo(smile.writeValueAsBytes(dtos(ROWS)));
+    }
+
+    private static StatTable table(List<Row> rows) {
+        StatTable table = new StatTable();
+        rows.forEach(row -> table.add(row.app(), row.uri(), row.hits()));
+        return table;
+    }
+
+    private static List<StatDto> dtos(List<Row> rows) {
+        return rows.stream()
+                .map(row -> StatDto.builder().app(row.app()).uri(row.uri()).hits(row.hits()).build())
+                .toList();
+    }
+
+    private record Row(String app, String uri, long hits) {
+    }
+}
@@ -0,0 +1,124 @@
+package ru.practicum.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+    /**
+     * Три стандартные ошибки: оценка выходит за них с вероятностью около 0.3%, а хэш детерминирован,
+     * поэтому тест либо стабильно проходит, либо стабильно падает.
+     */
+    private static final double TOLERANCE = 3 * HyperLogLog.STANDARD_ERROR;
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 100, 1_000, 10_000, 100_000, 1_000_000})
+    void estimateStaysWithinStandardError(int cardinality) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < cardinality; i++) {
+            sketch.add(ip(i));
+        }
+
+        assertThat((double) sketch.estimate()).isCloseTo(cardinality, within(Math.max(1, cardinality * TOLERANCE)));
+    }
+
+    @Test
+    void repeatedValuesDoNotChangeEstimate() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 5_000; i++) {
+            sketch.add(ip(i));
+        }
+        long estimate = sketch.estimate();
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 5_000; i++) {
+                sketch.add(ip(i));
+            }
+        }
+
+        assertThat(sketch.estimate()).isEqualTo(estimate);
+    }
+
+    @Test
+    void mergeEstimatesUnion() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (int i = 0; i < 60_000; i++) {
+            first.add(ip(i));
+        }
+        for (int i = 40_000; i < 100_000; i++) {
+            second.add(ip(i));
+        }
+
+        first.merge(second);
+        long union = first.estimate();
+        first.merge(second);
+
+        assertThat((double) union).isCloseTo(100_000, within(100_000 * TOLERANCE));
+        assertThat(first.estimate()).isEqualTo(union);
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 20_000; i++) {
+            sketch.add(ip(i));
+        }
+
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertThat(restored.toBytes()).isEqualTo(sketch.toBytes());
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void smallSketchIsStoredSparse() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            sketch.add(ip(i));
+        }
+
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        assertThat(new HyperLogLog().toBytes()).hasSize(1);
+        assertThat(bytes).hasSizeLessThanOrEqualTo(1 + 3 * 100);
+        assertThat(restored.toBytes()).isEqualTo(bytes);
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void sparseSketchTurnsDenseAboveLimit() {
+        HyperLogLog sketch = new HyperLogLog();
+        int i = 0;
+        while (sketch.toBytes().length < HyperLogLog.REGISTER_COUNT) {
+            sketch.add(ip(i++));
+        }
+
+        assertThat(i).isGreaterThan(HyperLogLog.SPARSE_LIMIT);
+        assertThat((double) sketch.estimate()).isCloseTo(i, within(i * TOLERANCE));
+    }
+
+    @Test
+    void sparseAndDenseSketchesGiveSameEstimate() {
+        HyperLogLog sparse = new HyperLogLog();
+        for (int i = 0; i < 500; i++) {
+            sparse.add(ip(i));
+        }
+        HyperLogLog dense = HyperLogLog.fromBytes(new byte[HyperLogLog.REGISTER_COUNT]);
+
+        dense.merge(sparse);
+
+        assertThat(dense.toBytes()).hasSize(HyperLogLog.REGISTER_COUNT);
+        assertThat(dense.estimate()).isEqualTo(sparse.estimate());
+        sparse.merge(dense);
+        assertThat(sparse.toBytes()).isEqualTo(dense.toBytes());
+    }
+
+    private static String ip(int i) {
+        return "10." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff);
+    }
+}
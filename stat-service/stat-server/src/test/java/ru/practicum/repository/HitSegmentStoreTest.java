@@ -0,0 +1,205 @@
+package ru.practicum.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.model.Hit;
+import ru.practicum.model.HyperLogLog;
+import ru.practicum.model.StatTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HitSegmentStoreTest {
+    private static final LocalDateTime HOUR = LocalDateTime.of(2026, 1, 1, 10, 0);
+    private static final LocalDateTime START = HOUR.minusDays(1);
+    private static final LocalDateTime END = HOUR.plusDays(1);
+
+    @TempDir
+    private Path directory;
+
+    private HitSegmentStore store;
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void hitsSurviveReopen() throws IOException {
+        store = open();
+        store.append(List.of(
+                hit("/events/1", "10.0.0.1", HOUR),
+                hit("/events/1", "10.0.0.1", HOUR.plusMinutes(5)),
+                hit("/events/1", "2001:db8::1", HOUR.plusHours(1)),
+                hit("/events/2", "unknown", HOUR.plusHours(1)),
+                hit("/events/2", "10.0.0.2", HOUR.plusHours(2))));
+        Map<String, Long> hits = toMap(store.findStats(START, END, null));
+        Map<String, Long> unique = toMap(store.findUniqueStats(START, END, null, false));
+
+        reopen();
+
+        assertThat(hits).containsExactly(Map.entry("/events/1", 3L), Map.entry("/events/2", 2L));
+        assertThat(unique).containsExactly(Map.entry("/events/1", 2L), Map.entry("/events/2", 2L));
+        assertThat(toMap(store.findStats(START, END, null))).isEqualTo(hits);
+        assertThat(toMap(store.findUniqueStats(START, END, null, false))).isEqualTo(unique);
+        assertThat(toMap(store.findStats(HOUR.plusHours(1), HOUR.plusHours(2), List.of("/events/2"))))
+                .containsExactly(Map.entry("/events/2", 1L));
+    }
+
+    @Test
+    void tornSegmentTailIsCutOnReopen() throws IOException {
+        store = open();
+        store.append(List.of(hit("/events/1", "10.0.0.1", HOUR), hit("/events/1", "10.0.0.2", HOUR)));
+        store.close();
+        Path segment = files(".seg").getFirst();
+        long validSize = Files.size(segment);
+        appendBytes(segment, ByteBuffer.allocate(24).putInt(1_000).putInt(42).putLong(7).flip());
+
+        store = open();
+        assertThat(Files.size(segment)).isEqualTo(validSize);
+        store.append(List.of(hit("/events/1", "10.0.0.3", HOUR)));
+        reopen();
+
+        assertThat(toMap(store.findStats(START, END, null))).containsExactly(Map.entry("/events/1", 3L));
+        assertThat(toMap(store.findUniqueStats(START, END, null, false))).containsExactly(Map.entry("/events/1", 3L));
+    }
+
+    @Test
+    void dictionaryKeepsIdsAndDropsTornTailOnReopen() throws IOException {
+        store = open();
+        store.append(List.of(hit("/events/1", "10.0.0.1", HOUR), hit("/events/2", "unknown", HOUR)));
+        store.close();
+        appendBytes(directory.resolve("dictionary.log"), ByteBuffer.allocate(12).putInt(500).putInt(0).flip());
+
+        store = open();
+        store.append(List.of(hit("/events/3", "unknown", HOUR), hit("/events/1", "unknown", HOUR)));
+        reopen();
+
+        assertThat(toMap(store.findStats(START, END, null))).containsExactly(Map.entry("/events/1", 2L),
+                Map.entry("/events/2", 1L), Map.entry("/events/3", 1L));
+        assertThat(toMap(store.findUniqueStats(START, END, List.of("/events/1"), false)))
+                .containsExactly(Map.entry("/events/1", 2L));
+    }
+
+    @Test
+    void approximateUniqueStatsStayWithinSketchError() {
+        store = open();
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            hits.add(hit("/events/1", "10.0." + (i / 256) + "." + (i % 256), HOUR.plusSeconds(i % 3600)));
+        }
+        store.append(hits);
+
+        long estimate = store.findUniqueStats(START, END, null, true).getHits(0);
+
+        assertThat((double) estimate).isCloseTo(20_000, within(20_000 * 3 * HyperLogLog.STANDARD_ERROR));
+        assertThat(store.findUniqueStats(START, END, null, false).getHits(0)).isEqualTo(20_000);
+    }
+
+    @Test
+    void exactUniqueStatsCountRepeatedIpsAcrossSegments() {
+        store = open();
+        Map<String, Set<String>> expected = new LinkedHashMap<>();
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < 60_000; i++) {
+            String uri = "/events/" + (i % 3);
+            String ip = "10.0." + (i * 7 % 5_000 / 256) + "." + (i * 7 % 5_000 % 256);
+            hits.add(hit(uri, ip, HOUR.plusSeconds(i)));
+            expected.computeIfAbsent(uri, u -> new HashSet<>()).add(ip);
+        }
+        store.append(hits);
+
+        Map<String, Long> unique = toMap(store.findUniqueStats(START, END, null, false));
+
+        assertThat(unique).hasSize(3);
+        expected.forEach((uri, ips) -> assertThat(unique).containsEntry(uri, (long) ips.size()));
+    }
+
+    @Test
+    void compactionKeepsHitsAppendedWhileItRuns() throws Exception {
+        store = open();
+        for (int i = 0; i < 10; i++) {
+            store.append(List.of(hit("/events/1", "10.0.0." + i, HOUR)));
+        }
+        Thread appender = new Thread(() -> {
+            for (int i = 10; i < 300; i++) {
+                store.append(List.of(hit("/events/1", "10.0." + (i / 256) + "." + (i % 256), HOUR.plusSeconds(i))));
+            }
+        });
+        appender.start();
+        while (appender.isAlive()) {
+            store.maintain();
+        }
+        appender.join();
+        store.maintain();
+
+        assertThat(files(".compact")).isEmpty();
+        assertThat(Files.size(files(".seg").getFirst()))
+                .isLessThan(300L * (HitColumns.HEADER_SIZE + HitColumns.BODY_HEADER_SIZE));
+        assertThat(toMap(store.findStats(START, END, null))).containsExactly(Map.entry("/events/1", 300L));
+        reopen();
+        assertThat(toMap(store.findUniqueStats(START, END, null, false))).containsExactly(Map.entry("/events/1", 300L));
+    }
+
+    @Test
+    void appendFailsOnceWriterStopped() {
+        store = open();
+        store.close();
+
+        assertThatThrownBy(() -> store.append(List.of(hit("/events/1", "10.0.0.1", HOUR))))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private HitSegmentStore open() {
+        try {
+            return new HitSegmentStore(directory.toString(), true, 0, Duration.ofSeconds(5));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private void reopen() {
+        store.close();
+        store = open();
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+
+    private static void appendBytes(Path file, ByteBuffer bytes) throws IOException {
+        Files.write(file, Arrays.copyOf(bytes.array(), bytes.limit()), StandardOpenOption.APPEND);
+    }
+
+    private static Map<String, Long> toMap(StatTable stats) {
+        Map<String, Long> hits = new LinkedHashMap<>();
+        for (int i = 0; i < stats.size(); i++) {
+            hits.put(stats.getUri(i), stats.getHits(i));
+        }
+        return hits;
+    }
+
+    private static Hit hit(String uri, String ip, LocalDateTime timestamp) {
+        return Hit.builder().app("ewm-main-service").uri(uri).ip(ip).timestamp(timestamp).build();
+    }
+}
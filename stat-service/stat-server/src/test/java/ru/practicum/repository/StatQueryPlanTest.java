@@ -0,0 +1,160 @@
+package ru.practicum.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.service.StatPartitionService;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Планы запросов, которые строят StatRollupRepository и UniqueStatRepository. Репозитории получают JdbcTemplate,
+ * который вместо выполнения запроса делает EXPLAIN того же SQL с теми же параметрами.
+ *
+ * <p>Данные лежат в партиции текущего месяца; планы не должны читать другие партиции и полные таблицы.
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StatQueryPlanTest extends PostgresIntegrationTest {
+    private static final int HITS = 200_000;
+    private static final int URIS = 50;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private StatPartitionService statPartitionService;
+
+    private final List<String> plans = new ArrayList<>();
+    private YearMonth month;
+    private StatRollupRepository statRollupRepository;
+    private UniqueStatRepository uniqueStatRepository;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("DELETE FROM statistics");
+        jdbcTemplate.execute("DELETE FROM stat_rollups");
+        statPartitionService.maintainPartitions();
+        month = YearMonth.now();
+        jdbcTemplate.update("""
+                INSERT INTO statistics (app, uri, ip, timestamp)
+                SELECT 'ewm-main-service', '/events/' || (i % ?), '10.0.' || (i % 200) || '.' || (i % 250),
+                    CAST(? AS TIMESTAMP) + i * INTERVAL '2 seconds'
+                FROM generate_series(0, ? - 1) AS i
+                """, URIS, Timestamp.valueOf(month.atDay(2).atStartOfDay()), HITS);
+        for (String granularity : List.of("MINUTE", "HOUR", "DAY")) {
+            jdbcTemplate.update("""
+                    INSERT INTO stat_rollups (granularity, bucket, app, uri, hits)
+                    SELECT ?, date_trunc(?, timestamp), app, uri, COUNT(*) FROM statistics
+                    GROUP BY 2, 3, 4
+                    """, granularity, granularity.toLowerCase());
+        }
+        jdbcTemplate.execute("ANALYZE statistics");
+        jdbcTemplate.execute("ANALYZE stat_rollups");
+
+        ExplainingJdbcTemplate explaining = new ExplainingJdbcTemplate(dataSource, plans);
+        statRollupRepository = new StatRollupRepository(explaining);
+        uniqueStatRepository = new UniqueStatRepository(explaining);
+    }
+
+    @Test
+    void rollupStatsReadCurrentPartitionAndRollupIndex() throws Exception {
+        LocalDateTime start = month.atDay(2).atTime(10, 17, 30);
+        LocalDateTime end = month.atDay(5).atTime(14, 33, 20);
+        for (List<String> uris : uriFilters()) {
+            List<JsonNode> nodes = explain(() -> statRollupRepository.findStats(start, end, uris));
+
+            assertNoSeqScanAndPruned(nodes);
+            assertThat(nodes).anyMatch(node -> "pk_stat_rollup".equals(node.path("Index Name").asText()));
+            assertThat(nodes).anyMatch(node -> isCurrentPartition(node.path("Relation Name").asText()));
+        }
+    }
+
+    @Test
+    void uniqueStatsUseUriTimestampIndexOfCurrentPartition() throws Exception {
+        LocalDateTime start = month.atDay(3).atTime(9, 0);
+        LocalDateTime end = month.atDay(3).atTime(12, 0);
+
+        List<JsonNode> byUri = explain(() -> uniqueStatRepository.findStats(start, end, List.of("/events/7")));
+        assertNoSeqScanAndPruned(byUri);
+        assertThat(byUri).anyMatch(node -> node.path("Index Name").asText()
+                .equals(partitionName(month) + "_uri_timestamp_idx"));
+
+        List<JsonNode> all = explain(() -> uniqueStatRepository.findStats(start, end, null));
+        assertNoSeqScanAndPruned(all);
+        assertThat(all).anyMatch(node -> node.path("Index Name").asText()
+                .equals(partitionName(month) + "_timestamp_idx"));
+    }
+
+    private List<JsonNode> explain(Runnable query) throws Exception {
+        plans.clear();
+        query.run();
+        assertThat(plans).hasSize(1);
+        List<JsonNode> nodes = new ArrayList<>();
+        collect(objectMapper.readTree(plans.get(0)).get(0).get("Plan"), nodes);
+        return nodes;
+    }
+
+    private void assertNoSeqScanAndPruned(List<JsonNode> nodes) {
+        assertThat(nodes).noneMatch(node -> "Seq Scan".equals(node.path("Node Type").asText()));
+        assertThat(nodes).map(node -> node.path("Relation Name").asText())
+                .filteredOn(relation -> relation.startsWith("statistics"))
+                .allMatch(this::isCurrentPartition);
+    }
+
+    private boolean isCurrentPartition(String relation) {
+        return partitionName(month).equals(relation);
+    }
+
+    private static List<List<String>> uriFilters() {
+        List<List<String>> filters = new ArrayList<>();
+        filters.add(null);
+        filters.add(List.of("/events/7", "/events/8"));
+        return filters;
+    }
+
+    private static void collect(JsonNode node, List<JsonNode> nodes) {
+        nodes.add(node);
+        for (JsonNode child : node.path("Plans")) {
+            collect(child, nodes);
+        }
+    }
+
+    private static String partitionName(YearMonth month) {
+        return String.format("statistics_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+
+    /**
+     * Вместо выполнения запроса со строками результата сохраняет его план в формате JSON.
+     */
+    private static class ExplainingJdbcTemplate extends JdbcTemplate {
+        private final List<String> plans;
+
+        ExplainingJdbcTemplate(DataSource dataSource, List<String> plans) {
+            super(dataSource);
+            this.plans = plans;
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+            plans.add(queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, args));
+        }
+    }
+}
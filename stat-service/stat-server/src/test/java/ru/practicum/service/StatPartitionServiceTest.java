@@ -0,0 +1,100 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.model.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "stats.partitions.retention-months=24")
+class StatPartitionServiceTest extends PostgresIntegrationTest {
+    @Autowired
+    private StatPartitionService statPartitionService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("DELETE FROM statistics");
+        jdbcTemplate.execute("DELETE FROM stat_rollups");
+        jdbcTemplate.execute("DELETE FROM stat_sketches");
+        statPartitionService.maintainPartitions();
+    }
+
+    @Test
+    void monthRangeIsPrunedToItsPartition() {
+        YearMonth current = YearMonth.now();
+        insertHit(current.atDay(1).atTime(12, 0));
+        insertHit(current.plusMonths(1).atDay(1).atTime(12, 0));
+
+        String plan = String.join("\n", jdbcTemplate.queryForList(String.format(
+                "EXPLAIN SELECT app, uri, COUNT(*) FROM statistics "
+                        + "WHERE timestamp >= '%s' AND timestamp < '%s' GROUP BY app, uri",
+                current.atDay(1).atStartOfDay(), current.atDay(15).atStartOfDay()), String.class));
+
+        assertThat(plan).contains(partitionName(current))
+                .doesNotContain(partitionName(current.plusMonths(1)))
+                .doesNotContain("statistics_default");
+    }
+
+    @Test
+    void rowsOfMonthInDefaultPartitionAreMovedToCreatedPartition() {
+        YearMonth next = YearMonth.now().plusMonths(1);
+        jdbcTemplate.execute("DROP TABLE " + partitionName(next));
+        insertHit(next.atDay(3).atStartOfDay());
+        insertHit(next.plusMonths(1).atDay(1).atStartOfDay().minusSeconds(1));
+        assertThat(count("statistics_default")).isEqualTo(2);
+
+        statPartitionService.maintainPartitions();
+
+        assertThat(count(partitionName(next))).isEqualTo(2);
+        assertThat(count("statistics_default")).isZero();
+        assertThat(count("statistics")).isEqualTo(2);
+    }
+
+    @Test
+    void retentionDropsOldPartitionsRollupsAndSketches() {
+        YearMonth current = YearMonth.now();
+        YearMonth expired = current.minusMonths(30);
+        jdbcTemplate.execute(String.format("CREATE TABLE %s PARTITION OF statistics FOR VALUES FROM ('%s') TO ('%s')",
+                partitionName(expired), expired.atDay(1), expired.plusMonths(1).atDay(1)));
+        insertHit(expired.atDay(5).atStartOfDay());
+        insertHit(expired.minusMonths(1).atDay(5).atStartOfDay());
+        insertHit(current.atDay(1).atTime(1, 0));
+        for (LocalDateTime bucket : new LocalDateTime[]{expired.atDay(5).atStartOfDay(), current.atDay(1).atStartOfDay()}) {
+            jdbcTemplate.update("INSERT INTO stat_rollups VALUES ('DAY', ?, 'app', '/events', 1)",
+                    Timestamp.valueOf(bucket));
+            jdbcTemplate.update("INSERT INTO stat_sketches VALUES ('DAY', ?, 'app', '/events', ?)",
+                    Timestamp.valueOf(bucket), new HyperLogLog().toBytes());
+        }
+
+        statPartitionService.maintainPartitions();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NULL", Boolean.class,
+                partitionName(expired))).isTrue();
+        assertThat(count("statistics")).isEqualTo(1);
+        assertThat(count("stat_rollups")).isEqualTo(1);
+        assertThat(count("stat_sketches")).isEqualTo(1);
+    }
+
+    private void insertHit(LocalDateTime timestamp) {
+        jdbcTemplate.update("INSERT INTO statistics (app, uri, ip, timestamp) VALUES ('app', '/events', '1.1.1.1', ?)",
+                Timestamp.valueOf(timestamp));
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return String.format("statistics_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+}
@@ -0,0 +1,146 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.model.Hit;
+import ru.practicum.model.HyperLogLog;
+import ru.practicum.model.StatTable;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Сравнивает приближённые уникальные IP из скетчей StatSketchService с точным COUNT(DISTINCT ip) по statistics
+ * на одних и тех же данных.
+ *
+ * <p>Проверяется, что оценки укладываются в три стандартные ошибки HyperLogLog, а почасовые скетчи с десятками
+ * посетителей хранятся разреженными. Медианы времени обоих запросов и размеры скетчей выводятся в лог.
+ */
+@Slf4j
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UniqueStatsBenchmarkTest extends PostgresIntegrationTest {
+    private static final int HITS = 1_000_000;
+    private static final int URIS = 50;
+    private static final int CHUNK = 100_000;
+    private static final int RUNS = 15;
+    private static final double TOLERANCE = 3 * HyperLogLog.STANDARD_ERROR;
+
+    @Autowired
+    private StatService statService;
+    @Autowired
+    private StatSketchService statSketchService;
+    @Autowired
+    private StatPartitionService statPartitionService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private YearMonth month;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("DELETE FROM statistics");
+        jdbcTemplate.execute("DELETE FROM stat_sketches");
+        statPartitionService.maintainPartitions();
+        month = YearMonth.now();
+        jdbcTemplate.update("""
+                INSERT INTO statistics (app, uri, ip, timestamp)
+                SELECT 'ewm-main-service', '/events/' || (i % ?), '10.0.' || (i % 200) || '.' || (i % 251),
+                    CAST(? AS TIMESTAMP) + i * INTERVAL '1 second'
+                FROM generate_series(0, ? - 1) AS i
+                """, URIS, Timestamp.valueOf(month.atDay(2).atStartOfDay()), HITS);
+        jdbcTemplate.execute("ANALYZE statistics");
+
+        List<Hit> chunk = new ArrayList<>(CHUNK);
+        jdbcTemplate.query("SELECT app, uri, ip, timestamp FROM statistics", (RowCallbackHandler) rs -> {
+            chunk.add(Hit.builder()
+                    .app(rs.getString(1))
+                    .uri(rs.getString(2))
+                    .ip(rs.getString(3))
+                    .timestamp(rs.getTimestamp(4).toLocalDateTime())
+                    .build());
+            if (chunk.size() == CHUNK) {
+                statSketchService.addHits(chunk);
+                chunk.clear();
+            }
+        });
+        statSketchService.addHits(chunk);
+        statSketchService.flush();
+    }
+
+    @Test
+    void approximateUniqueStatsMatchExactCount() {
+        LocalDateTime start = month.atDay(3).atTime(10, 17, 30);
+        LocalDateTime end = month.atDay(9).atTime(14, 33, 20);
+        Map<String, Long> exact = byUri(statService.getStats(start, end, null, true, false));
+        Map<String, Long> approximate = byUri(statService.getStats(start, end, null, true, true));
+
+        assertThat(approximate).hasSize(URIS).containsOnlyKeys(exact.keySet());
+        exact.forEach((uri, hits) -> assertThat((double) approximate.get(uri)).as(uri)
+                .isCloseTo(hits, within(hits * TOLERANCE)));
+    }
+
+    @Test
+    void hourlySketchesAreSparse() {
+        Map<String, Double> averageSize = new HashMap<>();
+        jdbcTemplate.query("SELECT granularity, AVG(octet_length(registers)) FROM stat_sketches GROUP BY granularity",
+                (RowCallbackHandler) rs -> averageSize.put(rs.getString(1), rs.getDouble(2)));
+        log.info("Средний размер скетча, байт: {}", averageSize);
+
+        assertThat(averageSize.get("HOUR")).isLessThan(HyperLogLog.REGISTER_COUNT / 16.0);
+    }
+
+    @Test
+    void uniqueStatsLatency() {
+        LocalDateTime[][] ranges = {
+                {month.atDay(3).atTime(9, 0), month.atDay(3).atTime(11, 59, 59)},
+                {month.atDay(3).atTime(10, 17, 30), month.atDay(9).atTime(14, 33, 20)},
+                {month.atDay(2).atStartOfDay(), month.atDay(13).atTime(23, 59, 59)}
+        };
+        StringBuilder report = new StringBuilder(String.format("%n%22s %22s %12s %12s%n", "start", "end", "exact",
+                "approximate"));
+        for (LocalDateTime[] range : ranges) {
+            report.append(String.format("%22s %22s %12.2f %12.2f%n", range[0], range[1],
+                    medianMillis(range[0], range[1], false), medianMillis(range[0], range[1], true)));
+        }
+        log.info("Медиана времени уникальных IP по {} uri на {} hits, мс:{}", URIS, HITS, report);
+    }
+
+    private double medianMillis(LocalDateTime start, LocalDateTime end, boolean approximate) {
+        for (int i = 0; i < 3; i++) {
+            statService.getStats(start, end, null, true, approximate);
+        }
+        long[] nanos = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long startNanos = System.nanoTime();
+            assertThat(statService.getStats(start, end, null, true, approximate).size()).isEqualTo(URIS);
+            nanos[i] = System.nanoTime() - startNanos;
+        }
+        Arrays.sort(nanos);
+        return nanos[RUNS / 2] / 1_000_000.0;
+    }
+
+    private static Map<String, Long> byUri(StatTable stats) {
+        Map<String, Long> hits = new HashMap<>();
+        for (int i = 0; i < stats.size(); i++) {
+            hits.put(stats.getUri(i), stats.getHits(i));
+        }
+        return hits;
+    }
+}